@@ -0,0 +1,293 @@
+package top.vchar.alibaba.acm.maven;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.springframework.util.StringUtils;
+import top.vchar.alibaba.acm.AcmConfigIndex;
+import top.vchar.alibaba.acm.AcmConfigParser;
+import top.vchar.alibaba.acm.AcmSnapshotStore;
+import top.vchar.alibaba.acm.DiamondProxy;
+import top.vchar.alibaba.acm.DiamondProxyFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * <p> fetch the data-ids of the application at build time and write them parsed into a config index, by default
+ * META-INF/acm-config.index of the jar, see {@link AcmConfigIndex} </p>
+ * <p> the settings are read from alibaba.acm.* of application.properties or application.yml of the project, the
+ * parameters of the plugin override them; the data-ids are merged in the same order as at startup: the data-id-list
+ * sorted, then the application data-id, whose data-id-list replaces the configured one. The lazy data-ids and the
+ * cipher- data-ids, which would be indexed encrypted, are not indexed </p>
+ * <p> the application reads the index when alibaba.acm.index-mode is index or index-revalidate </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 22:00
+ */
+@Mojo(name = "index", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true)
+public class AcmConfigIndexMojo extends AbstractMojo {
+
+    private static final String PROXY_PREFIX = "alibaba.acm.proxy.";
+
+    /**
+     * application config the alibaba.acm.* settings are read from, default application.properties and application.yml
+     * of the resources directory
+     */
+    @Parameter(property = "acm.configFile")
+    private File configFile;
+
+    @Parameter(defaultValue = "${project.basedir}/src/main/resources", readonly = true)
+    private File resourcesDirectory;
+
+    @Parameter(property = "acm.applicationDataId")
+    private String applicationDataId;
+
+    /**
+     * data-ids separated by comma
+     */
+    @Parameter(property = "acm.dataIdList")
+    private String dataIdList;
+
+    @Parameter(property = "acm.group")
+    private String group;
+
+    @Parameter(property = "acm.endpoint")
+    private String endpoint;
+
+    @Parameter(property = "acm.namespace")
+    private String namespace;
+
+    @Parameter(property = "acm.accessKey")
+    private String accessKey;
+
+    @Parameter(property = "acm.secretKey")
+    private String secretKey;
+
+    @Parameter(property = "acm.ramRoleName")
+    private String ramRoleName;
+
+    /**
+     * time out of each data-id in ms
+     */
+    @Parameter(property = "acm.timeOut", defaultValue = "3000")
+    private int timeOut;
+
+    /**
+     * where the config is read from, the same as alibaba.acm.diamond-proxy
+     */
+    @Parameter(property = "acm.diamondProxy")
+    private String diamondProxy;
+
+    /**
+     * settings of the diamond proxy, the same as alibaba.acm.proxy.*
+     */
+    @Parameter
+    private Map<String, String> proxy;
+
+    /**
+     * read the data-ids from {dir}/{group}/{dataId} instead of acm, a shortcut for the file diamond proxy
+     */
+    @Parameter(property = "acm.directory")
+    private File directory;
+
+    @Parameter(property = "acm.index.output", defaultValue = "${project.build.outputDirectory}/META-INF/acm-config.index")
+    private File output;
+
+    /**
+     * fail the build when a data-id can not be fetched, otherwise the data-id is left out and read from acm at startup
+     */
+    @Parameter(property = "acm.index.failOnError", defaultValue = "true")
+    private boolean failOnError;
+
+    @Parameter(property = "acm.index.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if(skip){
+            getLog().info("acm config index is skipped");
+            return;
+        }
+        Map<String, Object> settings = readSettings();
+        String applicationDataId = setting(this.applicationDataId, settings, "alibaba.acm.application-data-id");
+        String dataIdList = setting(this.dataIdList, settings, "alibaba.acm.data-id-list");
+        String group = setting(this.group, settings, "alibaba.acm.group");
+        if(StringUtils.isEmpty(group)){
+            group = "DEFAULT_GROUP";
+        }
+        String namespace = setting(this.namespace, settings, "alibaba.acm.namespace");
+
+        DiamondProxy diamondProxy = createDiamondProxy(settings, namespace);
+        AcmConfigIndex index = new AcmConfigIndex(namespace, group);
+        List<String> dataIds = split(dataIdList);
+        String applicationContent = null;
+        boolean hasApplicationDataId = !StringUtils.isEmpty(applicationDataId);
+        if(hasApplicationDataId && !AcmSnapshotStore.isAllowed(applicationDataId)){
+            getLog().info(applicationDataId+" is encrypted with kms, it is not indexed and is read from acm at startup");
+            hasApplicationDataId = false;
+        }
+        if(hasApplicationDataId){
+            applicationContent = fetch(diamondProxy, applicationDataId, group);
+            Map<String, Object> applicationSource = parse(applicationDataId, applicationContent);
+            if(null!=applicationSource && null!=applicationSource.get("alibaba.acm.data-id-list")){
+                dataIds = split(applicationSource.get("alibaba.acm.data-id-list").toString());
+            }
+        }
+        dataIds.sort(Comparator.naturalOrder());
+        for(String dataId:dataIds){
+            if(!AcmSnapshotStore.isAllowed(dataId)){
+                getLog().info(dataId+" is encrypted with kms, it is not indexed and is read from acm at startup");
+            }else if(!dataId.equals(applicationDataId)){
+                put(index, dataId, fetch(diamondProxy, dataId, group));
+            }
+        }
+        if(hasApplicationDataId){
+            put(index, applicationDataId, applicationContent);
+        }
+        if(index.getDataIds().isEmpty()){
+            getLog().warn("no acm data-id to index, set alibaba.acm.application-data-id or alibaba.acm.data-id-list");
+            return;
+        }
+        try{
+            index.write(output);
+        }catch (IOException e){
+            throw new MojoExecutionException("write acm config index "+output+" Exception: "+e.getMessage(), e);
+        }
+        getLog().info("acm config index of "+String.join(",", index.getDataIds())+" written to "+output);
+    }
+
+    /**
+     * @return return the alibaba.acm.* settings of the application config
+     */
+    private Map<String, Object> readSettings() throws MojoExecutionException {
+        List<File> files = new ArrayList<>();
+        if(null!=configFile){
+            files.add(configFile);
+        }else {
+            for(String name:new String[]{"application.yaml", "application.yml", "application.properties"}){
+                File file = new File(resourcesDirectory, name);
+                if(file.isFile()){
+                    files.add(file);
+                }
+            }
+        }
+        Map<String, Object> settings = new HashMap<>();
+        for(File file:files){
+            try{
+                String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                Map<String, Object> source = AcmConfigParser.toSource(file.getName(), content);
+                if(null!=source){
+                    settings.putAll(source);
+                }
+            }catch (IOException e){
+                throw new MojoExecutionException("read application config "+file+" Exception: "+e.getMessage(), e);
+            }
+        }
+        return settings;
+    }
+
+    private static String setting(String parameter, Map<String, Object> settings, String key) {
+        if(!StringUtils.isEmpty(parameter)){
+            return parameter;
+        }
+        Object value = settings.get(key);
+        return null==value ? null : value.toString();
+    }
+
+    private DiamondProxy createDiamondProxy(Map<String, Object> settings, String namespace) throws MojoExecutionException {
+        Properties properties = new Properties();
+        putIfPresent(properties, "endpoint", setting(endpoint, settings, "alibaba.acm.endpoint"));
+        putIfPresent(properties, "namespace", namespace);
+        putIfPresent(properties, "ramRoleName", setting(ramRoleName, settings, "alibaba.acm.ram-role-name"));
+        putIfPresent(properties, "accessKey", setting(accessKey, settings, "alibaba.acm.access-key"));
+        putIfPresent(properties, "secretKey", setting(secretKey, settings, "alibaba.acm.secret-key"));
+        for(Map.Entry<String, Object> entry:settings.entrySet()){
+            if(entry.getKey().startsWith(PROXY_PREFIX) && null!=entry.getValue()){
+                properties.put("proxy."+entry.getKey().substring(PROXY_PREFIX.length()), entry.getValue().toString());
+            }
+        }
+        if(null!=proxy){
+            for(Map.Entry<String, String> entry:proxy.entrySet()){
+                putIfPresent(properties, "proxy."+entry.getKey(), entry.getValue());
+            }
+        }
+        String name = setting(diamondProxy, settings, "alibaba.acm.diamond-proxy");
+        if(null!=directory){
+            name = "file";
+            properties.put("proxy.dir", directory.getAbsolutePath());
+        }
+        try{
+            DiamondProxy diamondProxy = DiamondProxyFactory.create(name);
+            getLog().info("read acm config with "+diamondProxy.getClass().getName());
+            diamondProxy.init(properties);
+            return diamondProxy;
+        }catch (RuntimeException e){
+            throw new MojoExecutionException("init acm config reader Exception: "+e.getMessage(), e);
+        }
+    }
+
+    private static void putIfPresent(Properties properties, String key, String value) {
+        if(!StringUtils.isEmpty(value)){
+            properties.put(key, value);
+        }
+    }
+
+    /**
+     * @return return the content, null if it could not be fetched and the build does not fail
+     */
+    private String fetch(DiamondProxy diamondProxy, String dataId, String group) throws MojoExecutionException {
+        try{
+            return diamondProxy.getConfig(dataId, group, timeOut);
+        }catch (Exception e){
+            return failed(dataId+" get acm config Exception: "+e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> parse(String dataId, String content) throws MojoExecutionException {
+        try{
+            return AcmConfigParser.toSource(dataId, content);
+        }catch (IOException e){
+            failed(dataId+" parse acm config Exception: "+e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private void put(AcmConfigIndex index, String dataId, String content) throws MojoExecutionException {
+        if(null==content){
+            getLog().warn(dataId+" is empty or could not be fetched, it is not indexed");
+            return;
+        }
+        try{
+            index.put(dataId, content);
+        }catch (IOException e){
+            failed(dataId+" parse acm config Exception: "+e.getMessage(), e);
+        }
+    }
+
+    private String failed(String message, Exception e) throws MojoExecutionException {
+        if(failOnError){
+            throw new MojoExecutionException(message, e);
+        }
+        getLog().warn(message+", it is read from acm at startup");
+        return null;
+    }
+
+    private static List<String> split(String dataIds) {
+        List<String> list = new ArrayList<>();
+        if(null!=dataIds){
+            for(String dataId:dataIds.split(",")){
+                if(dataId.trim().length()>0){
+                    list.add(dataId.trim());
+                }
+            }
+        }
+        return list;
+    }
+}
@@ -1,9 +1,12 @@
 package top.vchar.alibaba.acm;
 
-import com.alibaba.edas.acm.ConfigService;
+import com.alibaba.edas.acm.exception.ConfigException;
 import com.taobao.diamond.client.impl.TenantUtil;
 import com.taobao.diamond.identify.CredentialService;
 import com.taobao.diamond.identify.Credentials;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.context.config.ConfigFileApplicationListener;
 import org.springframework.boot.env.EnvironmentPostProcessor;
@@ -13,9 +16,15 @@ import org.springframework.core.Ordered;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -29,7 +38,13 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
 
     private final DeferredLog logger = new DeferredLog();
 
-    private static final String ACM_PROPERTY_SOURCE_NAME = "alibaba.acm.config";
+    private static final Log backgroundLogger = LogFactory.getLog(ACMConfigEnvironmentPostProcessor.class);
+
+    static final String ACM_PROPERTY_SOURCE_NAME = "alibaba.acm.config";
+
+    private static final String PROXY_PREFIX = "alibaba.acm.proxy.";
+
+    private static final String NAMESPACE_DATA_ID_LIST_PREFIX = "alibaba.acm.namespace-data-id-list.";
 
     /**
      * The default order for the processor.
@@ -38,6 +53,54 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
 
     private int order = DEFAULT_ORDER;
 
+    /**
+     * set by the constructor, or created from alibaba.acm.diamond-proxy when the config is loaded
+     */
+    private DiamondProxy diamondProxy;
+
+    private final AcmConfigStats stats = new AcmConfigStats();
+
+    private String namespace;
+
+    private String group;
+
+    private AcmProperties.SnapshotMode snapshotMode = AcmProperties.SnapshotMode.NONE;
+
+    private AcmSnapshotStore snapshotStore;
+
+    private AcmProperties.IndexMode indexMode = AcmProperties.IndexMode.NONE;
+
+    /**
+     * config index built into the application, null when not used
+     */
+    private AcmConfigIndex configIndex;
+
+    /**
+     * data-ids served from the local snapshot or the config index that need to be revalidated against ACM,
+     * with the digest of the content served
+     */
+    private final Map<String, String> revalidateDataIds = new ConcurrentHashMap<>();
+
+    /**
+     * data-ids loaded in the background after the application is ready
+     */
+    private List<String> lazyDataIds = Collections.emptyList();
+
+    /**
+     * plaintexts of the {cipher} values, null when they are not decrypted lazily
+     */
+    private AcmSecretCache secretCache;
+
+    public ACMConfigEnvironmentPostProcessor() {
+    }
+
+    /**
+     * @param diamondProxy get the config from acm, or from anywhere else
+     */
+    public ACMConfigEnvironmentPostProcessor(DiamondProxy diamondProxy) {
+        this.diamondProxy = diamondProxy;
+    }
+
     @Override
     public int getOrder() {
         return this.order;
@@ -77,22 +140,39 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
         loadAcmConfigFromSystem(acmProperties);
 
         Map<String, Object> newSource = toMap(acmProperties);
-        //set config to environment
-        propertySources.addLast(new OriginTrackedMapPropertySource(ACM_PROPERTY_SOURCE_NAME, newSource));
 
         //init acm config
         acmInit(acmProperties);
 
         //get Remotely acm config
-        Map<String, Object> config = loadConfig(acmProperties);
-        if(!config.isEmpty()){
-            newSource.putAll(config);
+        LinkedHashMap<String, Map<String, Object>> config = loadConfig(acmProperties);
+
+        //set config to environment, the acm config takes precedence over all the applicationConfig property sources
+        AcmConfigRepository repository = new AcmConfigRepository(environment, namespace, group, newSource, config, snapshotStore, stats, diamondProxy);
+        repository.install(applicationConfig.get(0).getName());
+        revalidate(repository, acmProperties.getTimeOut());
+
+        if(!lazyDataIds.isEmpty()){
+            AcmLazyDataIdLoader lazyDataIdLoader = new AcmLazyDataIdLoader(repository, diamondProxy, snapshotStore, acmProperties.getTimeOut(), lazyDataIds);
+            lazyDataIdLoader.install(environment);
+            if(null!=application){
+                application.addListeners(lazyDataIdLoader);
+            }
         }
 
-        //Refresh config
-        for(PropertySource<?> propertySource: applicationConfig){
-            OriginTrackedMapPropertySource source  = (OriginTrackedMapPropertySource) propertySource;
-            source.getSource().putAll(newSource);
+        // expose the repository to the application context so that config changes can be refreshed
+        AcmSecretCache secretCache = this.secretCache;
+        if(null!=application){
+            application.addInitializers(context -> {
+                logger.replayTo(ACMConfigEnvironmentPostProcessor.class);
+                repository.setEnvironment(context.getEnvironment());
+                if(!context.getBeanFactory().containsSingleton(AcmConfigRepository.BEAN_NAME)){
+                    context.getBeanFactory().registerSingleton(AcmConfigRepository.BEAN_NAME, repository);
+                }
+                if(null!=secretCache && !context.getBeanFactory().containsSingleton(AcmSecretCache.BEAN_NAME)){
+                    context.getBeanFactory().registerSingleton(AcmSecretCache.BEAN_NAME, secretCache);
+                }
+            });
         }
     }
 
@@ -102,7 +182,15 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
      * @param acmProperties acm config
      */
     private void loadAcmConfig(OriginTrackedMapPropertySource applicationPropertySource, AcmProperties acmProperties){
-        Map<String, Object> source =  applicationPropertySource.getSource();
+        loadAcmConfig(applicationPropertySource.getSource(), acmProperties);
+    }
+
+    /**
+     * read acm config
+     * @param source alibaba.acm.* settings
+     * @param acmProperties acm config
+     */
+    private void loadAcmConfig(Map<String, Object> source, AcmProperties acmProperties){
         if(!source.isEmpty()){
             if(null!=source.get("alibaba.acm.application-data-id")){
                 acmProperties.setApplicationDataId(source.get("alibaba.acm.application-data-id").toString());
@@ -125,6 +213,12 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
             if(null!=source.get("alibaba.acm.time-out")){
                 acmProperties.setTimeOut(Integer.parseInt(source.get("alibaba.acm.time-out").toString()));
             }
+            if(null!=source.get("alibaba.acm.startup-deadline")){
+                acmProperties.setStartupDeadline(Integer.parseInt(source.get("alibaba.acm.startup-deadline").toString()));
+            }
+            if(null!=source.get("alibaba.acm.fetch-threads")){
+                acmProperties.setFetchThreads(Integer.parseInt(source.get("alibaba.acm.fetch-threads").toString()));
+            }
             if(null!=source.get("alibaba.acm.ram-role-name")){
                 acmProperties.setRamRoleName(source.get("alibaba.acm.ram-role-name").toString());
             }
@@ -134,6 +228,12 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
                     acmProperties.setDataIdList(Arrays.asList(dataIds.split(",")));
                 }
             }
+            if(null!=source.get("alibaba.acm.lazy-data-id-list")){
+                String dataIds = source.get("alibaba.acm.lazy-data-id-list").toString().trim();
+                if(dataIds.length()>0){
+                    acmProperties.setLazyDataIdList(Arrays.asList(dataIds.split(",")));
+                }
+            }
             if(null!=source.get("alibaba.acm.open-kms-filter")){
                 acmProperties.setOpenKMSFilter("true".equals(source.get("alibaba.acm.open-kms-filter").toString()));
             }else {
@@ -142,6 +242,78 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
             if(null!=source.get("alibaba.acm.region-id")){
                 acmProperties.setRegionId(source.get("alibaba.acm.region-id").toString());
             }
+            if(null!=source.get("alibaba.acm.snapshot-mode")){
+                acmProperties.setSnapshotMode(AcmProperties.SnapshotMode.parse(source.get("alibaba.acm.snapshot-mode").toString()));
+            }
+            if(null!=source.get("alibaba.acm.snapshot-dir")){
+                acmProperties.setSnapshotDir(source.get("alibaba.acm.snapshot-dir").toString());
+            }
+            if(null!=source.get("alibaba.acm.diamond-proxy")){
+                acmProperties.setDiamondProxy(source.get("alibaba.acm.diamond-proxy").toString());
+            }
+            if(null!=source.get("alibaba.acm.shared-cache")){
+                acmProperties.setSharedCache(!"false".equals(source.get("alibaba.acm.shared-cache").toString()));
+            }
+            if(null!=source.get("alibaba.acm.resilient-fetch")){
+                acmProperties.setResilientFetch(!"false".equals(source.get("alibaba.acm.resilient-fetch").toString()));
+            }
+            if(null!=source.get("alibaba.acm.index-mode")){
+                acmProperties.setIndexMode(AcmProperties.IndexMode.parse(source.get("alibaba.acm.index-mode").toString()));
+            }
+            if(null!=source.get("alibaba.acm.mapped-content-threshold")){
+                acmProperties.setMappedContentThreshold(Integer.parseInt(source.get("alibaba.acm.mapped-content-threshold").toString()));
+            }
+            if(null!=source.get("alibaba.acm.lazy-decrypt")){
+                acmProperties.setLazyDecrypt("true".equals(source.get("alibaba.acm.lazy-decrypt").toString()));
+            }
+            if(null!=source.get("alibaba.acm.decryptor")){
+                acmProperties.setDecryptor(source.get("alibaba.acm.decryptor").toString());
+            }
+            if(null!=source.get("alibaba.acm.secret-cache-size")){
+                acmProperties.setSecretCacheSize(Integer.parseInt(source.get("alibaba.acm.secret-cache-size").toString()));
+            }
+            if(null!=source.get("alibaba.acm.secret-cache-ttl")){
+                acmProperties.setSecretCacheTtl(Long.parseLong(source.get("alibaba.acm.secret-cache-ttl").toString()));
+            }
+            if(null!=source.get("alibaba.acm.secret-cache-off-heap")){
+                acmProperties.setSecretCacheOffHeap("true".equals(source.get("alibaba.acm.secret-cache-off-heap").toString()));
+            }
+            if(null!=source.get("alibaba.acm.early-fetch")){
+                acmProperties.setEarlyFetch("true".equals(source.get("alibaba.acm.early-fetch").toString()));
+            }
+            if(null!=source.get("alibaba.acm.index-location")){
+                acmProperties.setIndexLocation(source.get("alibaba.acm.index-location").toString());
+            }
+            loadProxyConfig(source, acmProperties);
+            loadNamespaceDataIdList(source, acmProperties);
+        }
+    }
+
+    /**
+     * read the settings of the diamond proxy: alibaba.acm.proxy.*
+     * @param source config
+     * @param acmProperties acm config
+     */
+    private void loadProxyConfig(Map<?, ?> source, AcmProperties acmProperties){
+        for(Map.Entry<?, ?> entry:source.entrySet()){
+            String key = entry.getKey().toString();
+            if(key.startsWith(PROXY_PREFIX) && key.length()>PROXY_PREFIX.length() && null!=entry.getValue()){
+                acmProperties.getProxy().put(key.substring(PROXY_PREFIX.length()), entry.getValue().toString());
+            }
+        }
+    }
+
+    /**
+     * read the data-ids of other namespaces: alibaba.acm.namespace-data-id-list.{namespace}
+     * @param source config
+     * @param acmProperties acm config
+     */
+    private void loadNamespaceDataIdList(Map<?, ?> source, AcmProperties acmProperties){
+        for(Map.Entry<?, ?> entry:source.entrySet()){
+            String key = entry.getKey().toString();
+            if(key.startsWith(NAMESPACE_DATA_ID_LIST_PREFIX) && key.length()>NAMESPACE_DATA_ID_LIST_PREFIX.length() && null!=entry.getValue()){
+                acmProperties.getNamespaceDataIdList().put(key.substring(NAMESPACE_DATA_ID_LIST_PREFIX.length()), entry.getValue().toString());
+            }
         }
     }
 
@@ -151,6 +323,25 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
      */
     private void loadAcmConfigFromSystem(AcmProperties acmProperties){
 
+        if(StringUtils.isEmpty(acmProperties.getDiamondProxy()) || acmProperties.getVmPriority()){
+            String diamondProxy = System.getProperty("alibaba.acm.diamond-proxy");
+            if(!StringUtils.isEmpty(diamondProxy)){
+                acmProperties.setDiamondProxy(diamondProxy);
+            }
+        }
+        if(acmProperties.getVmPriority()){
+            loadProxyConfig(System.getProperties(), acmProperties);
+            loadNamespaceDataIdList(System.getProperties(), acmProperties);
+            String sharedCache = System.getProperty("alibaba.acm.shared-cache");
+            if(!StringUtils.isEmpty(sharedCache)){
+                acmProperties.setSharedCache(!"false".equals(sharedCache));
+            }
+            String resilientFetch = System.getProperty("alibaba.acm.resilient-fetch");
+            if(!StringUtils.isEmpty(resilientFetch)){
+                acmProperties.setResilientFetch(!"false".equals(resilientFetch));
+            }
+        }
+
         if(StringUtils.isEmpty(acmProperties.getApplicationDataId()) || acmProperties.getVmPriority()){
             String applicationDataId = System.getProperty("alibaba.acm.application-data-id");
             if(!StringUtils.isEmpty(applicationDataId)){
@@ -165,6 +356,13 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
             }
         }
 
+        if(acmProperties.getLazyDataIdList()==null || acmProperties.getLazyDataIdList().size()<1 || acmProperties.getVmPriority()){
+            String dataIds = System.getProperty("alibaba.acm.lazy-data-id-list");
+            if(!StringUtils.isEmpty(dataIds)){
+                acmProperties.setLazyDataIdList(Arrays.asList(dataIds.split(",")));
+            }
+        }
+
         if(StringUtils.isEmpty(acmProperties.getGroup()) || acmProperties.getVmPriority()){
             String group = System.getProperty("alibaba.acm.group");
             if(!StringUtils.isEmpty(group)){
@@ -238,9 +436,13 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
         try{
             Properties properties = new Properties();
             // 地域
-            properties.put("endpoint", acmProperties.getEndpoint());
+            if(null!=acmProperties.getEndpoint()){
+                properties.put("endpoint", acmProperties.getEndpoint());
+            }
             // 命名空间id
-            properties.put("namespace", acmProperties.getNamespace());
+            if(null!=acmProperties.getNamespace()){
+                properties.put("namespace", acmProperties.getNamespace());
+            }
             // 通过 ECS 实例 RAM 角色访问 ACM
             if(null!=acmProperties.getRamRoleName()){
                 properties.put("ramRoleName", acmProperties.getRamRoleName());
@@ -256,13 +458,61 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
                 properties.put("openKMSFilter", true);
                 properties.put("regionId", acmProperties.getRegionId());
             }
-            ConfigService.init(properties);
+            // settings of the diamond proxy, passed as proxy.*
+            for(Map.Entry<String, String> entry:acmProperties.getProxy().entrySet()){
+                properties.put("proxy."+entry.getKey(), entry.getValue());
+            }
+            if(null==diamondProxy){
+                diamondProxy = DiamondProxyFactory.create(acmProperties.getDiamondProxy());
+                logger.info("read acm config with "+diamondProxy.getClass().getName());
+                if(acmProperties.getResilientFetch()){
+                    // a slow or failing acm does not hold the startup for the full time out of every data-id
+                    diamondProxy = new ResilientDiamondProxy(diamondProxy);
+                }
+                if(acmProperties.getSharedCache()){
+                    // every application of the process reads a data-id with one fetch and one acm listener
+                    diamondProxy = new SingleFlightDiamondProxy(diamondProxy);
+                }
+            }
+            diamondProxy.init(properties);
+            secretCache = null;
+            if(acmProperties.getLazyDecrypt()){
+                Properties decryptorProperties = new Properties();
+                decryptorProperties.putAll(properties);
+                if(null!=acmProperties.getRegionId()){
+                    decryptorProperties.put("regionId", acmProperties.getRegionId());
+                }
+                AcmDecryptor decryptor = createDecryptor(acmProperties.getDecryptor());
+                decryptor.init(decryptorProperties);
+                secretCache = new AcmSecretCache(decryptor, acmProperties.getSecretCacheSize(), acmProperties.getSecretCacheTtl(),
+                        acmProperties.getSecretCacheOffHeap());
+            }
+            AcmEncryptedValue.setDefaultCache(secretCache);
         }catch (Exception e){
             logger.error("init alibaba acm Exception: "+ e.getMessage(), e);
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @param name kms, or the class name of an {@link AcmDecryptor} with a public no-arg constructor; kms when empty
+     * @return return the decryptor, not initialized yet
+     */
+    private AcmDecryptor createDecryptor(String name){
+        if(StringUtils.isEmpty(name) || "kms".equals(name.trim())){
+            return new AcmKmsDecryptor();
+        }
+        try{
+            Class<?> type = ClassUtils.forName(name.trim(), ClassUtils.getDefaultClassLoader());
+            if(!AcmDecryptor.class.isAssignableFrom(type)){
+                throw new IllegalArgumentException(name+" is not a "+AcmDecryptor.class.getName());
+            }
+            return (AcmDecryptor) BeanUtils.instantiateClass(type);
+        }catch (ClassNotFoundException e){
+            throw new IllegalArgumentException("unknown decryptor "+name, e);
+        }
+    }
+
     private Map<String, Object> toMap(AcmProperties acmProperties){
         Map<String, Object> map = new HashMap<>();
         if(null!=acmProperties.getApplicationDataId()){
@@ -271,6 +521,9 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
         if(null!=acmProperties.getDataIdList()){
             map.put("alibaba.acm.data-id-list", acmProperties.getDataIdList());
         }
+        if(null!=acmProperties.getLazyDataIdList()){
+            map.put("alibaba.acm.lazy-data-id-list", acmProperties.getLazyDataIdList());
+        }
         if(null!=acmProperties.getGroup()){
             map.put("alibaba.acm.group", acmProperties.getGroup());
         }
@@ -287,6 +540,8 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
             map.put("alibaba.acm.secret-key", acmProperties.getSecretKey());
         }
         map.put("alibaba.acm.time-out", acmProperties.getTimeOut());
+        map.put("alibaba.acm.startup-deadline", acmProperties.getStartupDeadline());
+        map.put("alibaba.acm.fetch-threads", acmProperties.getFetchThreads());
         if(null!=acmProperties.getRamRoleName()){
             map.put("alibaba.acm.ram-role-name", acmProperties.getRamRoleName());
         }
@@ -294,109 +549,484 @@ public class ACMConfigEnvironmentPostProcessor implements EnvironmentPostProcess
         if(null!=acmProperties.getRegionId()){
             map.put("alibaba.acm.region-id", acmProperties.getRegionId());
         }
+        map.put("alibaba.acm.snapshot-mode", acmProperties.getSnapshotMode());
+        if(null!=acmProperties.getSnapshotDir()){
+            map.put("alibaba.acm.snapshot-dir", acmProperties.getSnapshotDir());
+        }
+        if(null!=acmProperties.getDiamondProxy()){
+            map.put("alibaba.acm.diamond-proxy", acmProperties.getDiamondProxy());
+        }
+        for(Map.Entry<String, String> entry:acmProperties.getProxy().entrySet()){
+            map.put(PROXY_PREFIX+entry.getKey(), entry.getValue());
+        }
+        for(Map.Entry<String, String> entry:acmProperties.getNamespaceDataIdList().entrySet()){
+            map.put(NAMESPACE_DATA_ID_LIST_PREFIX+entry.getKey(), entry.getValue());
+        }
+        map.put("alibaba.acm.shared-cache", acmProperties.getSharedCache());
+        map.put("alibaba.acm.resilient-fetch", acmProperties.getResilientFetch());
+        map.put("alibaba.acm.index-mode", acmProperties.getIndexMode());
+        if(null!=acmProperties.getIndexLocation()){
+            map.put("alibaba.acm.index-location", acmProperties.getIndexLocation());
+        }
+        map.put("alibaba.acm.early-fetch", acmProperties.getEarlyFetch());
+        map.put("alibaba.acm.mapped-content-threshold", acmProperties.getMappedContentThreshold());
+        map.put("alibaba.acm.lazy-decrypt", acmProperties.getLazyDecrypt());
+        if(null!=acmProperties.getDecryptor()){
+            map.put("alibaba.acm.decryptor", acmProperties.getDecryptor());
+        }
+        map.put("alibaba.acm.secret-cache-size", acmProperties.getSecretCacheSize());
+        map.put("alibaba.acm.secret-cache-ttl", acmProperties.getSecretCacheTtl());
+        map.put("alibaba.acm.secret-cache-off-heap", acmProperties.getSecretCacheOffHeap());
         return map;
     }
 
     /**
-     * get remotely acm config
+     * get remotely acm config, all data-ids are fetched concurrently and must complete within the startup deadline;
+     * the merge order is the same as a sequential load: the data-ids of the other namespaces, the sorted data-id-list,
+     * then the application data-id
      *
      * @param acmProperties acm properties
-     * @return return config
+     * @return return config of each data-id in merge order, a data-id that failed to load has an empty config
      */
-    private Map<String, Object> loadConfig(AcmProperties acmProperties) {
+    private LinkedHashMap<String, Map<String, Object>> loadConfig(AcmProperties acmProperties) {
         logger.info("start get remotely acm config");
+        long start = System.nanoTime();
 
-        Map<String, Object> source = new HashMap<>(2);
+        LinkedHashMap<String, Map<String, Object>> source = new LinkedHashMap<>();
         String group = acmProperties.getGroup();
         if(group==null){
             group = "DEFAULT_GROUP";
         }
+        this.group = group;
 
         int timeOut = acmProperties.getTimeOut();
+        this.namespace = acmProperties.getNamespace();
+        this.snapshotMode = acmProperties.getSnapshotMode();
+        if(snapshotMode!=AcmProperties.SnapshotMode.NONE){
+            String snapshotDir = acmProperties.getSnapshotDir();
+            this.snapshotStore = new AcmSnapshotStore(StringUtils.isEmpty(snapshotDir) ? AcmSnapshotStore.defaultDir() : new File(snapshotDir));
+        }
+        AcmMappedContent.setThreshold(acmProperties.getMappedContentThreshold());
+        this.indexMode = acmProperties.getIndexMode();
+        this.configIndex = loadIndex(acmProperties.getIndexLocation(), group);
+        long deadline = acmProperties.getStartupDeadline()>0 ? System.currentTimeMillis()+acmProperties.getStartupDeadline() : Long.MAX_VALUE;
 
-        Map<String, Object> applicationMap = null;
-        if(null!=acmProperties.getApplicationDataId() && acmProperties.getApplicationDataId().length()>0){
-            applicationMap = loadConfig(acmProperties.getApplicationDataId(), group, timeOut);
-            if(null==applicationMap){
-                logger.error("load acm config '"+acmProperties.getApplicationDataId()+"' fail");
+        ExecutorService executor = newFetchExecutor(acmProperties.getFetchThreads());
+        Map<String, Future<Map<String, Object>>> futures = new HashMap<>();
+        try{
+            String applicationDataId = acmProperties.getApplicationDataId();
+            boolean hasApplicationDataId = null!=applicationDataId && applicationDataId.length()>0;
+            if(hasApplicationDataId){
+                submitLoadConfig(executor, futures, applicationDataId, group, timeOut);
+            }
+            List<String> namespaceDataIds = toNamespaceDataIds(acmProperties);
+            for(String dataId:namespaceDataIds){
+                submitLoadConfig(executor, futures, dataId, group, timeOut);
+            }
+            // the application data-id may replace the data-id-list, so the configured list is fetched speculatively
+            List<String> dataIdList = acmProperties.getDataIdList();
+            if(null!=dataIdList){
+                for(String dataId:dataIdList){
+                    submitLoadConfig(executor, futures, dataId, group, timeOut);
+                }
             }
-        }
 
-        List<String> dataIdList = acmProperties.getDataIdList();
+            Map<String, Object> applicationMap = null;
+            if(hasApplicationDataId){
+                applicationMap = awaitConfig(applicationDataId, group, futures.get(applicationDataId), deadline);
+                if(null==applicationMap){
+                    logger.error("load acm config '"+applicationDataId+"' fail");
+                }
+            }
 
-        if(null!=applicationMap && !applicationMap.isEmpty() && null!=applicationMap.get("alibaba.acm.data-id-list")){
-            String dataIdListStr = applicationMap.get("alibaba.acm.data-id-list").toString();
-            try{
-                if(null!=dataIdListStr && dataIdListStr.length()>0){
-                    dataIdList = Arrays.asList(dataIdListStr.split(","));
+            if(null!=applicationMap && !applicationMap.isEmpty() && null!=applicationMap.get("alibaba.acm.data-id-list")){
+                String dataIdListStr = applicationMap.get("alibaba.acm.data-id-list").toString();
+                try{
+                    if(null!=dataIdListStr && dataIdListStr.length()>0){
+                        dataIdList = Arrays.asList(dataIdListStr.split(","));
+                        for(String dataId:dataIdList){
+                            submitLoadConfig(executor, futures, dataId, group, timeOut);
+                        }
+                    }
+                }catch (Exception e){
+                    logger.error("load acm config data-id-list error", e);
+                }
+            }
+
+            List<String> lazyDataIdList = acmProperties.getLazyDataIdList();
+            if(null!=applicationMap && null!=applicationMap.get("alibaba.acm.lazy-data-id-list")){
+                String lazyDataIdListStr = applicationMap.get("alibaba.acm.lazy-data-id-list").toString();
+                lazyDataIdList = lazyDataIdListStr.length()>0 ? Arrays.asList(lazyDataIdListStr.split(",")) : null;
+            }
+            this.lazyDataIds = new ArrayList<>();
+            if(null!=lazyDataIdList){
+                for(String dataId:lazyDataIdList){
+                    // a data-id that is also in the data-id-list is loaded at startup
+                    if(null!=dataId && dataId.length()>0 && !dataId.equals(applicationDataId) && (null==dataIdList || !dataIdList.contains(dataId))){
+                        lazyDataIds.add(dataId);
+                    }
+                }
+                if(!lazyDataIds.isEmpty()){
+                    logger.info("will load lazy acm config data-id-list after the application is ready: "+String.join(",", lazyDataIds));
+                }
+            }
+
+            if(!namespaceDataIds.isEmpty()){
+                // shared config of other namespaces, overridden by the data-ids of the application
+                logger.info("will load acm config of other namespaces: "+String.join(",", namespaceDataIds));
+                for(String dataId:namespaceDataIds){
+                    Map<String, Object> map = awaitConfig(dataId, group, futures.get(dataId), deadline);
+                    source.put(dataId, null==map ? Collections.emptyMap() : map);
+                }
+            }
+
+            if((null!=dataIdList && dataIdList.size()>0) || !lazyDataIds.isEmpty()){
+                // the lazy data-ids keep their place in the merge order, empty until loaded
+                dataIdList = null==dataIdList ? new ArrayList<>() : new ArrayList<>(dataIdList);
+                dataIdList.addAll(lazyDataIds);
+                dataIdList.sort(Comparator.naturalOrder());
+                logger.info("will load acm config data-id-list: "+String.join(",", dataIdList));
+                for(String dataId:dataIdList){
+                    if(lazyDataIds.contains(dataId)){
+                        source.put(dataId, Collections.emptyMap());
+                    }else if(null!=dataId && dataId.length()>0){
+                        Map<String, Object> map = awaitConfig(dataId, group, futures.get(dataId), deadline);
+                        source.put(dataId, null==map ? Collections.emptyMap() : map);
+                    }
+                }
+            }else {
+                logger.info("no data-id-list config need load");
+            }
+
+            if(hasApplicationDataId){
+                // the application data-id always overrides the data-id-list
+                source.remove(applicationDataId);
+                source.put(applicationDataId, null==applicationMap ? Collections.emptyMap() : applicationMap);
+            }
+        }finally {
+            // data-ids dropped by the application data-id or still running after the deadline are abandoned
+            for(Future<Map<String, Object>> future:futures.values()){
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+        stats.setStartupTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start));
+        logger.info("get remotely acm config complete in "+stats.getStartupTime()+"ms");
+        return source;
+    }
+
+    /**
+     * @param acmProperties acm properties
+     * @return return the data-ids of the other namespaces, see {@link AcmNamespacedDataId}, in the configured order
+     * @throws IllegalArgumentException a cipher- data-id is set for another namespace
+     */
+    private List<String> toNamespaceDataIds(AcmProperties acmProperties){
+        List<String> dataIds = new ArrayList<>();
+        for(Map.Entry<String, String> entry:acmProperties.getNamespaceDataIdList().entrySet()){
+            String namespace = entry.getKey().trim();
+            if(namespace.equals(acmProperties.getNamespace())){
+                logger.warn(namespace+" is the namespace of the application, add its data-ids to alibaba.acm.data-id-list instead");
+                continue;
+            }
+            for(String dataId:entry.getValue().split(",")){
+                String id = AcmNamespacedDataId.checkReadable(AcmNamespacedDataId.of(namespace, dataId.trim()));
+                if(dataId.trim().length()>0 && !dataIds.contains(id)){
+                    dataIds.add(id);
                 }
-            }catch (Exception e){
-                logger.error("load acm config data-id-list error", e);
             }
         }
+        return dataIds;
+    }
 
-        if(null!=dataIdList && dataIdList.size()>0){
-            dataIdList.sort(Comparator.naturalOrder());
-            logger.info("will load acm config data-id-list: "+String.join(",", dataIdList));
-            for(String dataId:dataIdList){
-                if(null!=dataId && dataId.length()>0){
-                    Map<String, Object> map = loadConfig(dataId, group, timeOut);
-                    if(null!=map && !map.isEmpty()){
-                        source.putAll(map);
+    /**
+     * start fetching the startup data-ids in the background before the environment is prepared, the fetches go through
+     * the process-wide cache of {@link SingleFlightDiamondProxy}, so that the post-processor only waits for them or
+     * finds them already fetched; the data-id-list of the application data-id is fetched as soon as it is known
+     * @param source alibaba.acm.* settings known before the environment is prepared
+     * @return return false if early fetch is not enabled
+     */
+    boolean prefetch(Map<String, Object> source){
+        AcmProperties acmProperties = new AcmProperties();
+        loadAcmConfig(source, acmProperties);
+        String earlyFetch = System.getProperty("alibaba.acm.early-fetch");
+        if(!StringUtils.isEmpty(earlyFetch)){
+            acmProperties.setEarlyFetch("true".equals(earlyFetch));
+        }
+        if(!acmProperties.getEarlyFetch() || null!=diamondProxy){
+            return false;
+        }
+        loadAcmConfigFromSystem(acmProperties);
+        // without the shared cache the post-processor could not pick up the fetches
+        if(!acmProperties.getSharedCache() || acmProperties.getIndexMode()==AcmProperties.IndexMode.INDEX){
+            backgroundLogger.info("acm early fetch needs alibaba.acm.shared-cache and no alibaba.acm.index-mode=index, skip it");
+            return false;
+        }
+        acmInit(acmProperties);
+        String group = null==acmProperties.getGroup() ? "DEFAULT_GROUP" : acmProperties.getGroup();
+        int timeOut = acmProperties.getTimeOut();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("acm-config-prefetch-");
+        threadFactory.setDaemon(true);
+        int threads = Math.max(1, acmProperties.getFetchThreads());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        Set<String> submitted = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        String applicationDataId = acmProperties.getApplicationDataId();
+        if(!StringUtils.isEmpty(applicationDataId) && submitted.add(applicationDataId)){
+            executor.execute(() -> {
+                String content = prefetch(applicationDataId, group, timeOut);
+                try{
+                    Map<String, Object> applicationMap = AcmConfigParser.toSource(applicationDataId, content);
+                    if(null!=applicationMap && null!=applicationMap.get("alibaba.acm.data-id-list")){
+                        prefetch(executor, submitted, applicationMap.get("alibaba.acm.data-id-list").toString().split(","), group, timeOut);
                     }
+                }catch (IOException e){
+                    backgroundLogger.debug(applicationDataId+" parse acm config Exception: "+e.getMessage());
                 }
+            });
+        }
+        if(null!=acmProperties.getDataIdList()){
+            prefetch(executor, submitted, acmProperties.getDataIdList().toArray(new String[0]), group, timeOut);
+        }
+        prefetch(executor, submitted, toNamespaceDataIds(acmProperties).toArray(new String[0]), group, timeOut);
+        backgroundLogger.debug("acm early fetch of "+String.join(",", submitted)+" started");
+        return true;
+    }
+
+    private void prefetch(ExecutorService executor, Set<String> submitted, String[] dataIds, String group, int timeOut){
+        for(String dataId:dataIds){
+            if(null!=dataId && dataId.length()>0 && submitted.add(dataId)){
+                executor.execute(() -> prefetch(dataId, group, timeOut));
             }
-        }else {
-            logger.info("no data-id-list config need load");
         }
+    }
 
-        if(null!=applicationMap && !applicationMap.isEmpty()){
-            source.putAll(applicationMap);
+    /**
+     * @return return the content, null if it could not be fetched, the post-processor then fetches it again
+     */
+    private String prefetch(String dataId, String group, int timeOut){
+        try{
+            return diamondProxy.getConfig(dataId, group, timeOut);
+        }catch (Exception e){
+            backgroundLogger.debug(dataId+" acm early fetch Exception: "+e.getMessage());
+            return null;
         }
-        logger.info("get remotely acm config complete");
-        return source;
     }
 
-    private Map<String, Object> loadConfig(String dataId, String group, int timeOut){
+    private ExecutorService newFetchExecutor(int fetchThreads){
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("acm-config-fetch-");
+        threadFactory.setDaemon(true);
+        int threads = Math.max(1, fetchThreads);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    private void submitLoadConfig(ExecutorService executor, Map<String, Future<Map<String, Object>>> futures, String dataId, String group, int timeOut){
+        if(null!=dataId && dataId.length()>0 && !futures.containsKey(dataId)){
+            AcmConfigIndex.Entry entry = null==configIndex ? null : configIndex.get(dataId);
+            if(null!=entry){
+                futures.put(dataId, CompletableFuture.completedFuture(loadIndexConfig(dataId, entry)));
+            }else {
+                futures.put(dataId, executor.submit(() -> loadConfig(dataId, group, timeOut)));
+            }
+        }
+    }
+
+    /**
+     * read the config index, it is only used when it was built for the same namespace and group
+     * @param location location of the index, default classpath:META-INF/acm-config.index
+     * @param group group
+     * @return return the index, null if it is not used, not found or can not be read
+     */
+    private AcmConfigIndex loadIndex(String location, String group){
+        if(indexMode==AcmProperties.IndexMode.NONE){
+            return null;
+        }
+        if(StringUtils.isEmpty(location)){
+            location = "classpath:"+AcmConfigIndex.DEFAULT_LOCATION;
+        }
         try{
-            if(null!=dataId && dataId.trim().length()>0){
-                DiamondProxy diamondProxy = new DiamondProxyImpl();
-                if(dataId.endsWith(".yaml") || dataId.endsWith(".yml") || dataId.endsWith(".properties")){
-                    Properties properties = diamondProxy.getProperties(dataId, group, timeOut);
-                    Map<String, Object> source = toMap(properties);
-                    if(!source.isEmpty()){
-                        return source;
-                    }
-                }else {
-                    //not yaml file or properties file
-                    String config = diamondProxy.getConfig(dataId, group, timeOut);
-                    if(null!=config && config.length()>0){
-                        Map<String, Object> source = new HashMap<>();
-                        source.put(dataId, config);
-                        return source;
-                    }
+            long start = System.nanoTime();
+            AcmConfigIndex index = AcmConfigIndex.load(new DefaultResourceLoader().getResource(location));
+            if(null==index){
+                logger.warn("acm config index "+location+" not found, load the config from acm");
+                return null;
+            }
+            if(!index.matches(namespace, group)){
+                logger.warn("acm config index "+location+" was built for namespace '"+index.getNamespace()+"' and group "+index.getGroup()+", load the config from acm");
+                return null;
+            }
+            logger.info("read acm config index "+location+" of "+String.join(",", index.getDataIds())+" built at "+new Date(index.getBuildTime())
+                    +" in "+TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start)+"ms");
+            return index;
+        }catch (IOException e){
+            logger.error("read acm config index "+location+" Exception, load the config from acm: "+e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * the config of a data-id in the index, neither fetched nor parsed
+     * @param dataId dataId
+     * @param entry the data-id in the index
+     * @return return config
+     */
+    private Map<String, Object> loadIndexConfig(String dataId, AcmConfigIndex.Entry entry){
+        AcmConfigStats.DataIdStats dataIdStats = stats.get(dataId);
+        dataIdStats.outcome(AcmConfigStats.Outcome.INDEX);
+        dataIdStats.parsed(0, entry.getSource());
+        if(indexMode==AcmProperties.IndexMode.INDEX_REVALIDATE){
+            revalidateDataIds.put(dataId, null==entry.getHash() ? "" : entry.getHash());
+        }
+        return entry.getSource();
+    }
+
+    /**
+     * wait for a data-id until the startup deadline, fall back to the local snapshot when the deadline is exceeded
+     * @param dataId dataId
+     * @param group group
+     * @param future the fetch of the data-id
+     * @param deadline startup deadline in epoch millis
+     * @return return config, null if failed or the deadline was exceeded
+     */
+    private Map<String, Object> awaitConfig(String dataId, String group, Future<Map<String, Object>> future, long deadline){
+        if(null==future){
+            return null;
+        }
+        try{
+            long remaining = Math.max(0L, deadline-System.currentTimeMillis());
+            return future.get(remaining, TimeUnit.MILLISECONDS);
+        }catch (TimeoutException e){
+            future.cancel(true);
+            AcmConfigStats.DataIdStats dataIdStats = stats.get(dataId);
+            dataIdStats.outcome(AcmConfigStats.Outcome.TIMEOUT);
+            String snapshot = loadSnapshot(dataId, group);
+            if(null!=snapshot){
+                logger.warn(dataId+" get remotely acm config exceeded the startup deadline, use local snapshot");
+                try{
+                    long start = System.nanoTime();
+                    Map<String, Object> source = AcmConfigParser.toSource(dataId, snapshot);
+                    dataIdStats.parsed(System.nanoTime()-start, source);
+                    return source;
+                }catch (IOException ex){
+                    logger.error(dataId+" parse local snapshot Exception: "+ex.getMessage(), ex);
                 }
+            }else {
+                logger.error(dataId+" get remotely acm config exceeded the startup deadline");
             }
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            logger.error(dataId+" get remotely acm config interrupted");
+        }catch (ExecutionException e){
+            logger.error(dataId+" get remotely acm config Exception: "+e.getCause().getMessage(), e.getCause());
+        }
+        return null;
+    }
+
+    private Map<String, Object> loadConfig(String dataId, String group, int timeOut){
+        if(null==dataId || dataId.trim().length()==0){
+            return null;
+        }
+        AcmConfigStats.DataIdStats dataIdStats = stats.get(dataId);
+        try{
+            long start = System.nanoTime();
+            String content = getConfig(dataId, group, timeOut);
+            dataIdStats.fetched(System.nanoTime()-start, content);
+            start = System.nanoTime();
+            Map<String, Object> source = AcmConfigParser.toSource(dataId, content);
+            dataIdStats.parsed(System.nanoTime()-start, source);
+            return source;
         }catch (Exception e){
+            dataIdStats.outcome(AcmConfigStats.Outcome.FAILED);
             logger.error(dataId+" get remotely acm config Exception: "+e.getMessage(), e);
         }
         return null;
     }
 
-    private Map<String, Object> toMap(Properties properties) {
-        Map<String, Object> result = new HashMap<>();
-        if(null!=properties && !properties.isEmpty()){
-            for(Map.Entry<Object, Object> entry:properties.entrySet()){
-                if(null!=entry.getKey()){
-                    if(null!=entry.getValue()){
-                        result.put(entry.getKey().toString(), entry.getValue());
-                    }else {
-                        result.put(entry.getKey().toString(), null);
+    /**
+     * get the content of a data-id, using the local snapshot according to the snapshot mode
+     * @param dataId dataId
+     * @param group group
+     * @param timeOut time out ms
+     * @return return config content
+     * @throws ConfigException config exception and no snapshot to fall back to
+     */
+    private String getConfig(String dataId, String group, int timeOut) throws ConfigException {
+        if(snapshotMode==AcmProperties.SnapshotMode.SNAPSHOT_FIRST){
+            AcmSnapshotStore.AcmSnapshot snapshot = snapshotStore.load(namespace, group, dataId);
+            if(null!=snapshot){
+                logger.info(dataId+" load acm config from local snapshot");
+                revalidateDataIds.put(dataId, snapshot.getHash());
+                stats.get(dataId).outcome(AcmConfigStats.Outcome.SNAPSHOT);
+                return snapshot.getContent();
+            }
+        }
+        String config;
+        try{
+            config = diamondProxy.getConfig(dataId, group, timeOut);
+        }catch (ConfigException | RuntimeException e){
+            String snapshot = loadSnapshot(dataId, group);
+            if(null==snapshot){
+                throw e;
+            }
+            logger.warn(dataId+" get remotely acm config Exception: "+e.getMessage()+", use local snapshot");
+            stats.get(dataId).outcome(AcmConfigStats.Outcome.FALLBACK);
+            return snapshot;
+        }
+        stats.get(dataId).outcome(AcmConfigStats.Outcome.SUCCESS);
+        saveSnapshot(dataId, group, config);
+        return config;
+    }
+
+    private String loadSnapshot(String dataId, String group){
+        if(null==snapshotStore){
+            return null;
+        }
+        AcmSnapshotStore.AcmSnapshot snapshot = snapshotStore.load(namespace, group, dataId);
+        return null==snapshot ? null : snapshot.getContent();
+    }
+
+    /**
+     * save the last good content of a data-id
+     * @return return true if the snapshot changed
+     */
+    private boolean saveSnapshot(String dataId, String group, String config){
+        if(null!=snapshotStore && !StringUtils.isEmpty(config)){
+            try{
+                return snapshotStore.save(namespace, group, dataId, config);
+            }catch (IOException e){
+                logger.warn(dataId+" save local snapshot Exception: "+e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * revalidate the data-ids served from the local snapshot or the config index against ACM in the background,
+     * a stale data-id is refreshed with the remote content
+     * @param repository acm config repository
+     * @param timeOut time out ms
+     */
+    private void revalidate(AcmConfigRepository repository, int timeOut){
+        if(revalidateDataIds.isEmpty()){
+            return;
+        }
+        Map<String, String> dataIds = new LinkedHashMap<>(revalidateDataIds);
+        revalidateDataIds.clear();
+        Thread thread = new Thread(() -> {
+            for(Map.Entry<String, String> entry:dataIds.entrySet()){
+                String dataId = entry.getKey();
+                try{
+                    String config = diamondProxy.getConfig(dataId, group, timeOut);
+                    if(!StringUtils.isEmpty(config) && !entry.getValue().equals(AcmContentDigest.of(config))){
+                        backgroundLogger.warn(dataId+" local config was stale, refresh it with the remote content");
+                        repository.refresh(dataId, config);
                     }
+                }catch (Exception e){
+                    backgroundLogger.warn(dataId+" revalidate local config Exception: "+e.getMessage());
                 }
             }
-        }
-        return result;
+        }, "acm-config-revalidate");
+        thread.setDaemon(true);
+        thread.start();
     }
 
 }
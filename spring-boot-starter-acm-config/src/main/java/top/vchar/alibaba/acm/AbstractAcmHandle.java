@@ -0,0 +1,35 @@
+package top.vchar.alibaba.acm;
+
+/**
+ * <p> a config value bound to a key and kept converted, updated by {@link AcmConfigHandles} when acm refreshes a key it
+ * depends on </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 23:20
+ */
+abstract class AbstractAcmHandle {
+
+    private final String key;
+
+    AbstractAcmHandle(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return return the key the handle is bound to
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return return the type the value is converted to
+     */
+    abstract Class<?> getType();
+
+    /**
+     * @param value the converted value, null if the key is missing
+     */
+    abstract void set(Object value);
+}
@@ -1,14 +1,15 @@
 package top.vchar.alibaba.acm;
 
-import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.ConfigurableEnvironment;
-
-import java.util.List;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 
 /**
  * <p> 配置文件监听器 </p>
@@ -19,19 +20,145 @@ import java.util.List;
  */
 @Configuration
 @EnableConfigurationProperties({AcmProperties.class})
-public class AcmAutoConfiguration implements ApplicationContextAware {
+public class AcmAutoConfiguration {
+
+    @Bean
+    public AcmConfigurationPropertiesRebinder acmConfigurationPropertiesRebinder() {
+        return new AcmConfigurationPropertiesRebinder();
+    }
+
+    /**
+     * 监听配置文件变更，刷新配置
+     */
+    @Bean
+    @ConditionalOnBean(AcmConfigRepository.class)
+    public AcmConfigRefresher acmConfigRefresher(AcmConfigRepository acmConfigRepository, AcmConfigurationPropertiesRebinder rebinder, AcmProperties acmProperties,
+                                                 ObjectProvider<AcmListenerDispatcher> acmListenerDispatcher) {
+        return new AcmConfigRefresher(acmConfigRepository, rebinder, acmConfigRepository.getDiamondProxy(), acmProperties.getRefreshDebounce(),
+                acmListenerDispatcher.getIfAvailable());
+    }
+
+    /**
+     * 在独立的线程池中执行配置变更回调，每个dataId单独排队，回调慢的dataId不影响其他dataId的刷新
+     */
+    @Bean
+    @ConditionalOnBean(AcmConfigRepository.class)
+    @ConditionalOnMissingBean
+    public AcmListenerDispatcher acmListenerDispatcher(AcmProperties acmProperties) {
+        return new AcmListenerDispatcher(acmProperties.getListenerThreads(), acmProperties.getListenerQueueCapacity());
+    }
+
+    /**
+     * 缓存配置读取结果，acm配置刷新时只失效变更的key
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "alibaba.acm", name = "property-cache", havingValue = "true")
+    public AcmCachingPropertyResolver acmCachingPropertyResolver(ConfigurableEnvironment environment, ObjectProvider<AcmConfigRepository> acmConfigRepository) {
+        AcmCachingPropertyResolver resolver = new AcmCachingPropertyResolver(environment);
+        // registered before the refresher, so the cache is invalidated before the beans are rebound
+        acmConfigRepository.ifAvailable(repository -> repository.addListener(resolver));
+        return resolver;
+    }
+
+    /**
+     * 绑定到key的配置值，已转换好类型，acm配置刷新时只更新依赖变更key的值
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public AcmConfigHandles acmConfigHandles(ConfigurableEnvironment environment, ObjectProvider<AcmConfigRepository> acmConfigRepository) {
+        AcmConfigHandles handles = new AcmConfigHandles(environment);
+        // registered before the refresher, so the handles hold the new values when the event is published
+        acmConfigRepository.ifAvailable(repository -> repository.addListener(handles));
+        return handles;
+    }
+
+    /**
+     * 功能开关和灰度发布，规则定义在alibaba.acm.feature-flag-data-id指定的dataId中
+     */
+    @Bean
+    @ConditionalOnBean(AcmConfigRepository.class)
+    @ConditionalOnProperty(prefix = "alibaba.acm", name = "feature-flag-data-id")
+    @ConditionalOnMissingBean
+    public AcmFeatureFlags acmFeatureFlags(AcmConfigRepository acmConfigRepository, AcmProperties acmProperties) {
+        AcmFeatureFlags featureFlags = new AcmFeatureFlags(acmConfigRepository, acmProperties.getFeatureFlagDataId());
+        acmConfigRepository.addListener(featureFlags);
+        return featureFlags;
+    }
 
-    @Autowired
-    private AcmProperties acmProperties;
+    /**
+     * 发布各dataId的加载和刷新指标到micrometer
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnBean(AcmConfigRepository.class)
+    static class AcmMetricsConfiguration {
 
-    @Override
-    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
-        List<String> dataIdList = acmProperties.getDataIdList();
-        if(null!=dataIdList && dataIdList.size()>0){
-            ConfigurableEnvironment environment = (ConfigurableEnvironment) applicationContext.getEnvironment();
+        @Bean
+        @ConditionalOnMissingBean
+        public AcmConfigMetrics acmConfigMetrics(AcmConfigRepository acmConfigRepository, ObjectProvider<AcmListenerDispatcher> acmListenerDispatcher,
+                                                 ObjectProvider<AcmSecretCache> acmSecretCache) {
+            return new AcmConfigMetrics(acmConfigRepository.getStats(), acmListenerDispatcher.getIfAvailable(), acmSecretCache.getIfAvailable());
+        }
+    }
+
+    /**
+     * acm推送spring.redis.lettuce.pool.*变更时调整redis连接池大小，无需重启
+     */
+    @Configuration
+    @ConditionalOnClass(name = {"org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory", "org.apache.commons.pool2.impl.GenericObjectPool"})
+    @ConditionalOnBean(AcmConfigRepository.class)
+    static class AcmLettucePoolConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public AcmLettucePoolResizer acmLettucePoolResizer(ConfigurableEnvironment environment, AcmConfigRepository acmConfigRepository,
+                                                           ObjectProvider<LettuceConnectionFactory> connectionFactories) {
+            AcmLettucePoolResizer resizer = new AcmLettucePoolResizer(environment, connectionFactories);
+            acmConfigRepository.addListener(resizer);
+            return resizer;
+        }
+    }
+
+    /**
+     * acm推送server.tomcat.*变更时调整tomcat线程池和连接数，无需重启
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+    @ConditionalOnBean(AcmConfigRepository.class)
+    static class AcmTomcatConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public AcmTomcatConnectorTuner acmTomcatConnectorTuner(ConfigurableEnvironment environment, AcmConfigRepository acmConfigRepository) {
+            AcmTomcatConnectorTuner tuner = new AcmTomcatConnectorTuner(environment);
+            acmConfigRepository.addListener(tuner);
+            return tuner;
+        }
+
+        @Configuration
+        @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+        static class AcmTomcatMetricsConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public AcmTomcatMetrics acmTomcatMetrics(AcmTomcatConnectorTuner acmTomcatConnectorTuner) {
+                return new AcmTomcatMetrics(acmTomcatConnectorTuner);
+            }
+        }
+    }
 
-            //TODO 监听配置文件变更监听，刷新配置
+    /**
+     * actuator endpoint: /actuator/acm
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    @ConditionalOnBean(AcmConfigRepository.class)
+    static class AcmEndpointConfiguration {
 
+        @Bean
+        @ConditionalOnMissingBean
+        public AcmConfigEndpoint acmConfigEndpoint(AcmConfigRepository acmConfigRepository) {
+            return new AcmConfigEndpoint(acmConfigRepository);
         }
     }
 }
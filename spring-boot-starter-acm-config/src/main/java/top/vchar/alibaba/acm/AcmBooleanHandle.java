@@ -0,0 +1,49 @@
+package top.vchar.alibaba.acm;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p> the boolean value of a key, such as a toggle, reading it is a single field load without boxing </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 23:20
+ */
+public final class AcmBooleanHandle extends AbstractAcmHandle implements BooleanSupplier {
+
+    private final boolean defaultValue;
+
+    private volatile boolean value;
+
+    AcmBooleanHandle(String key, boolean defaultValue) {
+        super(key);
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * @return return the current value, the default value if the key is missing
+     */
+    public boolean get() {
+        return value;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+        return value;
+    }
+
+    @Override
+    Class<?> getType() {
+        return Boolean.class;
+    }
+
+    @Override
+    void set(Object value) {
+        this.value = null==value ? defaultValue : (Boolean) value;
+    }
+
+    @Override
+    public String toString() {
+        return getKey()+"="+value;
+    }
+}
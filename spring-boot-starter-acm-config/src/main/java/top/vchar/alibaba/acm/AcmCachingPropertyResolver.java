@@ -0,0 +1,197 @@
+package top.vchar.alibaba.acm;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.core.env.PropertySourcesPropertyResolver;
+import org.springframework.util.ClassUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p> a {@link PropertyResolver} over the environment that remembers every resolved property, including the missing ones,
+ * so reading a property again is a single map lookup </p>
+ * <p> the keys read while resolving the placeholders of a property are tracked, when the acm config is refreshed only the
+ * properties depending on a changed key are resolved again; a change outside of acm, such as a system property set at
+ * runtime, is not seen until {@link #clear()} </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 19:10
+ */
+public class AcmCachingPropertyResolver implements PropertyResolver, AcmConfigRefreshListener {
+
+    private static final Object MISSING = new Object();
+
+    private final ConfigurableEnvironment environment;
+
+    private final TrackingPropertyResolver resolver;
+
+    private final Map<String, Object> cache = new ConcurrentHashMap<>();
+
+    /**
+     * the cached properties depending on each key, by the canonical form of the key
+     */
+    private final Map<String, Set<String>> dependents = new ConcurrentHashMap<>();
+
+    /**
+     * changed on every invalidation, a value resolved while the config changed is not cached
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public AcmCachingPropertyResolver(ConfigurableEnvironment environment) {
+        this.environment = environment;
+        this.resolver = new TrackingPropertyResolver(environment);
+    }
+
+    @Override
+    public void onRefresh(AcmConfigChangeEvent event) {
+        invalidate(event.getChangedKeys());
+    }
+
+    /**
+     * forget the properties depending on the keys
+     * @param keys changed keys
+     */
+    public void invalidate(Collection<String> keys) {
+        generation.incrementAndGet();
+        for(String key:keys){
+            Set<String> names = dependents.remove(AcmConfigurationPropertiesRebinder.canonical(key));
+            if(null!=names){
+                for(String name:names){
+                    cache.remove(name);
+                }
+            }
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * forget every property
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        cache.clear();
+        dependents.clear();
+    }
+
+    private Object get(String key) {
+        Object value = cache.get(key);
+        if(null==value){
+            long current = generation.get();
+            Set<String> dependencies = new HashSet<>();
+            dependencies.add(key);
+            value = resolver.resolve(key, Object.class, dependencies);
+            if(null==value){
+                value = MISSING;
+            }
+            for(String dependency:dependencies){
+                dependents.computeIfAbsent(AcmConfigurationPropertiesRebinder.canonical(dependency), k -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            cache.put(key, value);
+            if(generation.get()!=current){
+                cache.remove(key, value);
+            }
+        }
+        return value==MISSING ? null : value;
+    }
+
+    private <T> T convert(Object value, Class<T> targetType) {
+        if(null==value){
+            return null;
+        }
+        if(ClassUtils.isAssignableValue(targetType, value)){
+            return targetType.cast(value);
+        }
+        ConversionService conversionService = environment.getConversionService();
+        return conversionService.convert(value, targetType);
+    }
+
+    @Override
+    public boolean containsProperty(String key) {
+        return null!=get(key);
+    }
+
+    @Override
+    public String getProperty(String key) {
+        return convert(get(key), String.class);
+    }
+
+    @Override
+    public String getProperty(String key, String defaultValue) {
+        String value = getProperty(key);
+        return null==value ? defaultValue : value;
+    }
+
+    @Override
+    public <T> T getProperty(String key, Class<T> targetType) {
+        return convert(get(key), targetType);
+    }
+
+    @Override
+    public <T> T getProperty(String key, Class<T> targetType, T defaultValue) {
+        T value = getProperty(key, targetType);
+        return null==value ? defaultValue : value;
+    }
+
+    @Override
+    public String getRequiredProperty(String key) throws IllegalStateException {
+        String value = getProperty(key);
+        if(null==value){
+            throw new IllegalStateException("Required key '"+key+"' not found");
+        }
+        return value;
+    }
+
+    @Override
+    public <T> T getRequiredProperty(String key, Class<T> targetType) throws IllegalStateException {
+        T value = getProperty(key, targetType);
+        if(null==value){
+            throw new IllegalStateException("Required key '"+key+"' not found");
+        }
+        return value;
+    }
+
+    @Override
+    public String resolvePlaceholders(String text) {
+        return environment.resolvePlaceholders(text);
+    }
+
+    @Override
+    public String resolveRequiredPlaceholders(String text) throws IllegalArgumentException {
+        return environment.resolveRequiredPlaceholders(text);
+    }
+
+    /**
+     * resolve a property like the environment does and record the keys its placeholders read
+     */
+    static class TrackingPropertyResolver extends PropertySourcesPropertyResolver {
+
+        private final ThreadLocal<Set<String>> dependencies = new ThreadLocal<>();
+
+        TrackingPropertyResolver(ConfigurableEnvironment environment) {
+            super(environment.getPropertySources());
+            setConversionService(environment.getConversionService());
+        }
+
+        <T> T resolve(String key, Class<T> targetType, Set<String> dependencies) {
+            this.dependencies.set(dependencies);
+            try{
+                return getProperty(key, targetType);
+            }finally {
+                this.dependencies.remove();
+            }
+        }
+
+        @Override
+        protected String getPropertyAsRawString(String key) {
+            Set<String> keys = dependencies.get();
+            if(null!=keys){
+                keys.add(key);
+            }
+            return super.getPropertyAsRawString(key);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package top.vchar.alibaba.acm;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.*;
+
+/**
+ * <p> published after acm config changes were applied to the environment, only carries the keys that really changed </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 12:20
+ */
+public class AcmConfigChangeEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> dataIds;
+
+    private final Set<String> addedKeys;
+
+    private final Set<String> removedKeys;
+
+    private final Set<String> modifiedKeys;
+
+    private final Set<String> derivedKeys;
+
+    private final Set<String> changedKeys;
+
+    public AcmConfigChangeEvent(Object source, List<String> dataIds, Set<String> addedKeys, Set<String> removedKeys, Set<String> modifiedKeys) {
+        this(source, dataIds, addedKeys, removedKeys, modifiedKeys, Collections.emptySet());
+    }
+
+    /**
+     * @param source event source
+     * @param dataIds the changed data-ids
+     * @param addedKeys added keys
+     * @param removedKeys removed keys
+     * @param modifiedKeys modified keys
+     * @param derivedKeys keys not changed themselves whose placeholders read a changed key, see {@link AcmPlaceholderGraph}
+     */
+    public AcmConfigChangeEvent(Object source, List<String> dataIds, Set<String> addedKeys, Set<String> removedKeys, Set<String> modifiedKeys,
+                                Set<String> derivedKeys) {
+        super(source);
+        this.dataIds = Collections.unmodifiableList(dataIds);
+        this.addedKeys = Collections.unmodifiableSet(addedKeys);
+        this.removedKeys = Collections.unmodifiableSet(removedKeys);
+        this.modifiedKeys = Collections.unmodifiableSet(modifiedKeys);
+        this.derivedKeys = Collections.unmodifiableSet(derivedKeys);
+        Set<String> changed = new HashSet<>(addedKeys);
+        changed.addAll(removedKeys);
+        changed.addAll(modifiedKeys);
+        changed.addAll(derivedKeys);
+        this.changedKeys = Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * compute the key level change between two config maps
+     * @param source event source
+     * @param dataIds the changed data-ids
+     * @param before config before the change
+     * @param after config after the change
+     * @param keys the keys that may have changed
+     * @return return the change event, null if no key changed
+     */
+    public static AcmConfigChangeEvent diff(Object source, List<String> dataIds, Map<String, Object> before, Map<String, Object> after, Collection<String> keys) {
+        Set<String> added = new HashSet<>();
+        Set<String> removed = new HashSet<>();
+        Set<String> modified = new HashSet<>();
+        for(String key:keys){
+            boolean inBefore = before.containsKey(key);
+            boolean inAfter = after.containsKey(key);
+            if(inBefore && inAfter){
+                if(!Objects.equals(before.get(key), after.get(key))){
+                    modified.add(key);
+                }
+            }else if(inAfter){
+                added.add(key);
+            }else if(inBefore){
+                removed.add(key);
+            }
+        }
+        if(added.isEmpty() && removed.isEmpty() && modified.isEmpty()){
+            return null;
+        }
+        return new AcmConfigChangeEvent(source, dataIds, added, removed, modified);
+    }
+
+    /**
+     * merge a change not called back yet into the next one, as if both were applied at once
+     * @param older the earlier change
+     * @param newer the later change
+     * @return return the change of both, with the source of the later one
+     */
+    public static AcmConfigChangeEvent merge(AcmConfigChangeEvent older, AcmConfigChangeEvent newer) {
+        Set<String> dataIds = new LinkedHashSet<>(older.dataIds);
+        dataIds.addAll(newer.dataIds);
+        Set<String> added = new HashSet<>(older.addedKeys);
+        Set<String> removed = new HashSet<>(older.removedKeys);
+        Set<String> modified = new HashSet<>(older.modifiedKeys);
+        for(String key:newer.addedKeys){
+            // removed then added again: it was there before both changes
+            if(removed.remove(key)){
+                modified.add(key);
+            }else {
+                added.add(key);
+            }
+        }
+        for(String key:newer.modifiedKeys){
+            // added then modified: still added
+            if(!added.contains(key)){
+                modified.add(key);
+            }
+        }
+        for(String key:newer.removedKeys){
+            added.remove(key);
+            modified.remove(key);
+            removed.add(key);
+        }
+        Set<String> derived = new HashSet<>(older.derivedKeys);
+        derived.addAll(newer.derivedKeys);
+        derived.removeAll(added);
+        derived.removeAll(removed);
+        derived.removeAll(modified);
+        return new AcmConfigChangeEvent(newer.getSource(), new ArrayList<>(dataIds), added, removed, modified, derived);
+    }
+
+    /**
+     * @param derivedKeys keys not changed themselves whose placeholders read a changed key
+     * @return return the same change with the derived keys
+     */
+    AcmConfigChangeEvent withDerivedKeys(Set<String> derivedKeys) {
+        return new AcmConfigChangeEvent(getSource(), dataIds, addedKeys, removedKeys, modifiedKeys, derivedKeys);
+    }
+
+    public List<String> getDataIds() {
+        return dataIds;
+    }
+
+    public Set<String> getAddedKeys() {
+        return addedKeys;
+    }
+
+    public Set<String> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    public Set<String> getModifiedKeys() {
+        return modifiedKeys;
+    }
+
+    /**
+     * @return return the keys not changed themselves whose resolved value changed because their placeholders read
+     * a changed key, such as url=${host}/api when host changed
+     */
+    public Set<String> getDerivedKeys() {
+        return derivedKeys;
+    }
+
+    /**
+     * @return return the added, removed, modified and derived keys
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "AcmConfigChangeEvent{" +
+                "dataIds=" + dataIds +
+                ", addedKeys=" + addedKeys +
+                ", removedKeys=" + removedKeys +
+                ", modifiedKeys=" + modifiedKeys +
+                ", derivedKeys=" + derivedKeys +
+                '}';
+    }
+}
@@ -0,0 +1,51 @@
+package top.vchar.alibaba.acm;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p> actuator endpoint showing the state, the last fetch and the last refresh of every data-id </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 16:40
+ */
+@Endpoint(id = "acm")
+public class AcmConfigEndpoint {
+
+    private final AcmConfigRepository repository;
+
+    public AcmConfigEndpoint(AcmConfigRepository repository) {
+        this.repository = repository;
+    }
+
+    @ReadOperation
+    public Map<String, Object> acm() {
+        Map<String, Object> acm = new LinkedHashMap<>();
+        acm.put("namespace", repository.getNamespace());
+        acm.put("group", repository.getGroup());
+        acm.put("startupTime", repository.getStats().getStartupTime());
+        List<Map<String, Object>> dataIds = new ArrayList<>();
+        for(AcmConfigStats.DataIdStats dataIdStats:repository.getStats().getDataIds()){
+            dataIds.add(dataIdStats.toMap());
+        }
+        acm.put("dataIds", dataIds);
+        return acm;
+    }
+
+    @ReadOperation
+    public Map<String, Object> dataId(@Selector String dataId) {
+        for(AcmConfigStats.DataIdStats dataIdStats:repository.getStats().getDataIds()){
+            if(dataIdStats.getDataId().equals(dataId)){
+                return dataIdStats.toMap();
+            }
+        }
+        return null;
+    }
+}
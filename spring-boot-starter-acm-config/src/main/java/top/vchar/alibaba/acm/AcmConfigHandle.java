@@ -0,0 +1,50 @@
+package top.vchar.alibaba.acm;
+
+import java.util.function.Supplier;
+
+/**
+ * <p> the value of a key converted to a type, reading it is a single field load </p>
+ * <p> created by {@link AcmConfigHandles}; use {@link AcmIntHandle}, {@link AcmLongHandle} or {@link AcmBooleanHandle}
+ * for a primitive value, so the value is not boxed </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 23:20
+ */
+public final class AcmConfigHandle<T> extends AbstractAcmHandle implements Supplier<T> {
+
+    private final Class<T> type;
+
+    private final T defaultValue;
+
+    private volatile T value;
+
+    AcmConfigHandle(String key, Class<T> type, T defaultValue) {
+        super(key);
+        this.type = type;
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * @return return the current value, the default value if the key is missing
+     */
+    @Override
+    public T get() {
+        return value;
+    }
+
+    @Override
+    Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    void set(Object value) {
+        this.value = null==value ? defaultValue : type.cast(value);
+    }
+
+    @Override
+    public String toString() {
+        return getKey()+"="+value;
+    }
+}
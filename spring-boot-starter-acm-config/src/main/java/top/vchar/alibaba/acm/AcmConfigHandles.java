@@ -0,0 +1,103 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.util.*;
+
+/**
+ * <p> create the handles of the config values read on every request, such as rate limits, timeouts and toggles: a handle
+ * holds the value already converted, reading it is a single field load without lookup, conversion or allocation </p>
+ * <p> the keys read while resolving the placeholders of a handle are tracked, when the acm config is refreshed only the
+ * handles depending on a changed key are converted again, before the {@link AcmConfigChangeEvent} is published; a value
+ * that can not be converted keeps the handle on its previous value </p>
+ * <p> a handle lives as long as the application, create it once and keep it in a field </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 23:20
+ */
+public class AcmConfigHandles implements AcmConfigRefreshListener {
+
+    private static final Log logger = LogFactory.getLog(AcmConfigHandles.class);
+
+    private final AcmCachingPropertyResolver.TrackingPropertyResolver resolver;
+
+    /**
+     * the handles depending on each key, by the canonical form of the key
+     */
+    private final Map<String, Set<AbstractAcmHandle>> dependents = new HashMap<>();
+
+    public AcmConfigHandles(ConfigurableEnvironment environment) {
+        this.resolver = new AcmCachingPropertyResolver.TrackingPropertyResolver(environment);
+    }
+
+    /**
+     * @param key property key
+     * @param type the type the value is converted to
+     * @param defaultValue the value when the key is missing
+     * @return return the handle
+     * @throws org.springframework.core.convert.ConversionException the current value can not be converted
+     */
+    public <T> AcmConfigHandle<T> handle(String key, Class<T> type, T defaultValue) {
+        return register(new AcmConfigHandle<>(key, type, defaultValue));
+    }
+
+    /**
+     * @param key property key
+     * @param type the type the value is converted to
+     * @return return the handle, its value is null when the key is missing
+     */
+    public <T> AcmConfigHandle<T> handle(String key, Class<T> type) {
+        return handle(key, type, null);
+    }
+
+    public AcmIntHandle intHandle(String key, int defaultValue) {
+        return register(new AcmIntHandle(key, defaultValue));
+    }
+
+    public AcmLongHandle longHandle(String key, long defaultValue) {
+        return register(new AcmLongHandle(key, defaultValue));
+    }
+
+    public AcmBooleanHandle booleanHandle(String key, boolean defaultValue) {
+        return register(new AcmBooleanHandle(key, defaultValue));
+    }
+
+    /**
+     * synchronized with the refresh, a handle resolved while the environment changes is updated by the refresh
+     */
+    private synchronized <H extends AbstractAcmHandle> H register(H handle) {
+        update(handle);
+        return handle;
+    }
+
+    @Override
+    public synchronized void onRefresh(AcmConfigChangeEvent event) {
+        Set<AbstractAcmHandle> handles = new HashSet<>();
+        for(String key:event.getChangedKeys()){
+            Set<AbstractAcmHandle> set = dependents.get(AcmConfigurationPropertiesRebinder.canonical(key));
+            if(null!=set){
+                handles.addAll(set);
+            }
+        }
+        for(AbstractAcmHandle handle:handles){
+            try{
+                update(handle);
+            }catch (RuntimeException e){
+                logger.error(handle.getKey()+" convert acm config to "+handle.getType().getSimpleName()+" Exception, keep the previous value: "+e.getMessage());
+            }
+        }
+    }
+
+    private void update(AbstractAcmHandle handle) {
+        Set<String> dependencies = new HashSet<>();
+        dependencies.add(handle.getKey());
+        handle.set(resolver.resolve(handle.getKey(), handle.getType(), dependencies));
+        // a placeholder changed to another key only adds a dependency, a stale one costs an extra update
+        for(String dependency:dependencies){
+            dependents.computeIfAbsent(AcmConfigurationPropertiesRebinder.canonical(dependency), k -> new HashSet<>()).add(handle);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package top.vchar.alibaba.acm;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * <p> the parsed config of the data-ids, built before the application starts and read at startup without asking acm
+ * and without parsing any content </p>
+ * <p> the index file is a header (magic, version, CRC32 of the body) followed by the body: namespace, group, build time
+ * and the data-ids in merge order, each with the digest of its content and its keys sorted the same way as
+ * {@link AcmPropertySource}, so the keys are read straight into the property source; the values keep the type
+ * they were parsed into </p>
+ * <p> the index is written by the acm-config-maven-plugin into META-INF/acm-config.index of the jar </p>
+ * <p> a cipher- data-id, encrypted with kms, is never indexed: the index would hold its ciphertext, it is always read
+ * from acm through the kms filter </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 21:40
+ */
+public class AcmConfigIndex {
+
+    /**
+     * where the maven plugin puts the index, on the classpath
+     */
+    public static final String DEFAULT_LOCATION = "META-INF/acm-config.index";
+
+    private static final int MAGIC = 0x41434d49;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final byte NULL = 0;
+
+    private static final byte STRING = 1;
+
+    private static final byte INTEGER = 2;
+
+    private static final byte LONG = 3;
+
+    private static final byte DOUBLE = 4;
+
+    private static final byte BOOLEAN = 5;
+
+    private static final byte BIG_INTEGER = 6;
+
+    private static final byte DATE = 7;
+
+    private static final byte BYTES = 8;
+
+    private final String namespace;
+
+    private final String group;
+
+    private final long buildTime;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * @param namespace namespace the config is read from
+     * @param group group the config is read from
+     */
+    public AcmConfigIndex(String namespace, String group) {
+        this(namespace, group, System.currentTimeMillis());
+    }
+
+    private AcmConfigIndex(String namespace, String group, long buildTime) {
+        this.namespace = StringUtils.isEmpty(namespace) ? "" : namespace;
+        this.group = group;
+        this.buildTime = buildTime;
+    }
+
+    /**
+     * parse the content of a data-id and add it after the data-ids already added, the same as a push it overrides them
+     * @param dataId dataId
+     * @param content config content
+     * @throws IOException parse exception
+     * @throws IllegalArgumentException the data-id is a cipher- data-id
+     */
+    public void put(String dataId, String content) throws IOException {
+        if(!AcmSnapshotStore.isAllowed(dataId)){
+            throw new IllegalArgumentException(dataId+" is encrypted with kms, it can not be indexed");
+        }
+        String hash = null==content ? null : AcmContentDigest.of(content);
+        Map<String, Object> source = AcmConfigParser.toSource(dataId, content, hash);
+        entries.remove(dataId);
+        entries.put(dataId, new Entry(hash, AcmPropertySource.compact(null==source ? Collections.emptyMap() : source)));
+    }
+
+    /**
+     * whether the index was built for the namespace and group, only then its config can be used
+     * @param namespace namespace
+     * @param group group
+     * @return return true if both match
+     */
+    public boolean matches(String namespace, String group) {
+        return this.namespace.equals(StringUtils.isEmpty(namespace) ? "" : namespace) && this.group.equals(group);
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @return return the time the index was built, epoch millis
+     */
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * @return return the data-ids in merge order
+     */
+    public List<String> getDataIds() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * @param dataId dataId
+     * @return return the config of the data-id, null if it is not in the index or is a cipher- data-id
+     */
+    public Entry get(String dataId) {
+        if(!AcmSnapshotStore.isAllowed(dataId)){
+            return null;
+        }
+        return entries.get(dataId);
+    }
+
+    /**
+     * write the index, the file is replaced at once
+     * @param file index file
+     * @throws IOException write exception
+     */
+    public void write(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if(!dir.isDirectory() && !dir.mkdirs()){
+            throw new IOException("can not create index dir "+dir);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        writeString(out, namespace);
+        writeString(out, group);
+        out.writeLong(buildTime);
+        out.writeInt(entries.size());
+        for(Map.Entry<String, Entry> entry:entries.entrySet()){
+            writeString(out, entry.getKey());
+            writeString(out, null==entry.getValue().hash ? "" : entry.getValue().hash);
+            Map<String, Object> source = entry.getValue().source;
+            out.writeInt(source.size());
+            // the compact map iterates in sorted order
+            for(Map.Entry<String, Object> property:source.entrySet()){
+                writeString(out, property.getKey());
+                writeValue(out, property.getValue());
+            }
+        }
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try{
+            try(DataOutputStream fileOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))){
+                fileOut.writeInt(MAGIC);
+                fileOut.writeInt(VERSION);
+                fileOut.writeInt((int) crc.getValue());
+                body.writeTo(fileOut);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * read an index, a file on the disk is mapped into memory, an entry of a jar is read at once
+     * @param resource index resource
+     * @return return the index, null if the resource does not exist
+     * @throws IOException read exception, or the index is corrupted
+     */
+    public static AcmConfigIndex load(Resource resource) throws IOException {
+        if(!resource.exists()){
+            return null;
+        }
+        ByteBuffer buffer;
+        if(resource.isFile()){
+            try(FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)){
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }else {
+            try(InputStream in = resource.getInputStream()){
+                buffer = ByteBuffer.wrap(StreamUtils.copyToByteArray(in));
+            }
+        }
+        return read(buffer);
+    }
+
+    /**
+     * @param buffer the bytes of an index file
+     * @return return the index
+     * @throws IOException the index is corrupted or of another version
+     */
+    public static AcmConfigIndex read(ByteBuffer buffer) throws IOException {
+        try{
+            if(buffer.remaining()<HEADER_SIZE || buffer.getInt()!=MAGIC){
+                throw new IOException("not an acm config index");
+            }
+            int version = buffer.getInt();
+            if(version!=VERSION){
+                throw new IOException("unsupported acm config index version "+version);
+            }
+            int checksum = buffer.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if((int) crc.getValue()!=checksum){
+                throw new IOException("acm config index is corrupted");
+            }
+            AcmConfigIndex index = new AcmConfigIndex(readString(buffer), readString(buffer), buffer.getLong());
+            int dataIds = buffer.getInt();
+            for(int i=0; i<dataIds; i++){
+                String dataId = readString(buffer);
+                String hash = readString(buffer);
+                // the whole content of a data-id that is not yml or properties
+                String raw = AcmConfigParser.isPropertiesType(dataId) ? null : dataId;
+                String[] names = new String[buffer.getInt()];
+                Object[] values = new Object[names.length];
+                for(int j=0; j<names.length; j++){
+                    names[j] = readString(buffer).intern();
+                    if(j>0 && names[j-1].compareTo(names[j])>=0){
+                        throw new IOException(dataId+" keys of the acm config index are not sorted");
+                    }
+                    values[j] = readValue(buffer, raw);
+                }
+                if(null==raw){
+                    AcmEncryptedValue.wrap(values);
+                }
+                index.entries.put(dataId, new Entry(hash.isEmpty() ? null : hash, AcmPropertySource.compact(names, values)));
+            }
+            return index;
+        }catch (BufferUnderflowException | IllegalArgumentException e){
+            throw new IOException("acm config index is corrupted", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * a large content is kept off the heap: a slice of the index when the index is mapped, mapped on its own otherwise
+     */
+    private static Object readContent(ByteBuffer buffer, String dataId) {
+        int length = buffer.getInt();
+        if(AcmMappedContent.isLarge(length) && buffer.isDirect()){
+            // limited before slicing, so that the slice ends with the content
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(slice.position()+length);
+            slice = slice.slice();
+            buffer.position(buffer.position()+length);
+            return new AcmMappedContent(slice, null);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        String content = new String(bytes, StandardCharsets.UTF_8);
+        return AcmMappedContent.store(dataId, content, null);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if(null==value){
+            out.writeByte(NULL);
+        }else if(value instanceof Integer){
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        }else if(value instanceof Long){
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        }else if(value instanceof Double){
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        }else if(value instanceof Boolean){
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }else if(value instanceof BigInteger){
+            out.writeByte(BIG_INTEGER);
+            writeString(out, value.toString());
+        }else if(value instanceof Date){
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        }else if(value instanceof AcmEncryptedValue){
+            // never the plaintext
+            out.writeByte(STRING);
+            writeString(out, ((AcmEncryptedValue) value).getRawValue());
+        }else if(value instanceof byte[]){
+            out.writeByte(BYTES);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        }else {
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    /**
+     * @param raw the data-id when the value is the whole content of a data-id that is not yml or properties, otherwise null
+     */
+    private static Object readValue(ByteBuffer buffer, String raw) {
+        byte type = buffer.get();
+        switch (type){
+            case NULL:
+                return null;
+            case STRING:
+                return null!=raw ? readContent(buffer, raw) : readString(buffer);
+            case INTEGER:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            case BOOLEAN:
+                return 0!=buffer.get();
+            case BIG_INTEGER:
+                return new BigInteger(readString(buffer));
+            case DATE:
+                return new Date(buffer.getLong());
+            case BYTES:
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                return bytes;
+            default:
+                throw new IllegalArgumentException("unknown value type "+type);
+        }
+    }
+
+    /**
+     * the config of a data-id in the index
+     */
+    public static class Entry {
+
+        private final String hash;
+
+        private final Map<String, Object> source;
+
+        Entry(String hash, Map<String, Object> source) {
+            this.hash = hash;
+            this.source = source;
+        }
+
+        /**
+         * @return return the digest of the content, see {@link AcmContentDigest#of(String)}, null if the data-id is empty
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * @return return the read-only config of the data-id
+         */
+        public Map<String, Object> getSource() {
+            return source;
+        }
+    }
+}
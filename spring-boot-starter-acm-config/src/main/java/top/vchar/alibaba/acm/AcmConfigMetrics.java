@@ -0,0 +1,100 @@
+package top.vchar.alibaba.acm;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> publish the startup and refresh stats of every data-id to micrometer </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 16:30
+ */
+public class AcmConfigMetrics implements MeterBinder {
+
+    private final AcmConfigStats stats;
+
+    private final AcmListenerDispatcher dispatcher;
+
+    private final AcmSecretCache secretCache;
+
+    public AcmConfigMetrics(AcmConfigStats stats) {
+        this(stats, null, null);
+    }
+
+    public AcmConfigMetrics(AcmConfigStats stats, AcmListenerDispatcher dispatcher) {
+        this(stats, dispatcher, null);
+    }
+
+    /**
+     * @param stats stats of the data-ids
+     * @param dispatcher dispatcher of the change callbacks, null if there is none
+     * @param secretCache plaintexts of the encrypted values, null if they are not decrypted lazily
+     */
+    public AcmConfigMetrics(AcmConfigStats stats, AcmListenerDispatcher dispatcher, AcmSecretCache secretCache) {
+        this.stats = stats;
+        this.dispatcher = dispatcher;
+        this.secretCache = secretCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("acm.config.startup", stats, TimeUnit.MILLISECONDS, s -> unknownAsNaN(s.getStartupTime()))
+                .description("time spent loading the remote config at startup").register(registry);
+        // the data-ids loaded after the binding get their meters when their stats are created
+        stats.forEachDataId(dataIdStats -> bindTo(registry, dataIdStats));
+        if(null!=dispatcher){
+            Gauge.builder("acm.listener.queue", dispatcher, AcmListenerDispatcher::getQueueDepth)
+                    .description("config changes waiting for their callbacks").register(registry);
+            Gauge.builder("acm.listener.active", dispatcher, AcmListenerDispatcher::getActiveCount)
+                    .description("data-ids whose callbacks are running").register(registry);
+            FunctionTimer.builder("acm.listener.callback", dispatcher, AcmListenerDispatcher::getCallbackCount, AcmListenerDispatcher::getCallbackTime, TimeUnit.MILLISECONDS)
+                    .description("callbacks of the config changes: rebind and event listeners").register(registry);
+            TimeGauge.builder("acm.listener.callback.max", dispatcher, TimeUnit.MILLISECONDS, AcmListenerDispatcher::getMaxCallbackTime)
+                    .description("longest callback of a config change").register(registry);
+            FunctionTimer.builder("acm.listener.wait", dispatcher, AcmListenerDispatcher::getCallbackCount, AcmListenerDispatcher::getWaitTime, TimeUnit.MILLISECONDS)
+                    .description("time the config changes waited for their callbacks").register(registry);
+            FunctionCounter.builder("acm.listener.dropped", dispatcher, AcmListenerDispatcher::getDroppedCount)
+                    .description("config changes merged into a later one because their queue was full").register(registry);
+        }
+        if(null!=secretCache){
+            Gauge.builder("acm.secret.cache.size", secretCache, AcmSecretCache::size)
+                    .description("decrypted values kept").register(registry);
+            FunctionCounter.builder("acm.secret.cache.hits", secretCache, AcmSecretCache::getHitCount)
+                    .description("reads of an encrypted value found decrypted").register(registry);
+            FunctionCounter.builder("acm.secret.cache.misses", secretCache, AcmSecretCache::getMissCount)
+                    .description("reads of an encrypted value that had to be decrypted").register(registry);
+            FunctionTimer.builder("acm.secret.decrypt", secretCache, AcmSecretCache::getDecryptCount, AcmSecretCache::getDecryptTime, TimeUnit.MILLISECONDS)
+                    .description("values decrypted and the time of their batches").register(registry);
+        }
+    }
+
+    private static void bindTo(MeterRegistry registry, AcmConfigStats.DataIdStats dataIdStats) {
+        Tags tags = Tags.of("dataId", dataIdStats.getDataId());
+        TimeGauge.builder("acm.config.fetch", dataIdStats, TimeUnit.MILLISECONDS, s -> unknownAsNaN(s.getFetchTime()))
+                .tags(tags).description("startup fetch latency of the data-id").register(registry);
+        TimeGauge.builder("acm.config.parse", dataIdStats, TimeUnit.MILLISECONDS, s -> unknownAsNaN(s.getParseTime()))
+                .tags(tags).description("last parse time of the data-id").register(registry);
+        Gauge.builder("acm.config.payload", dataIdStats, AcmConfigStats.DataIdStats::getPayloadBytes)
+                .tags(tags).baseUnit("bytes").description("size of the last content of the data-id").register(registry);
+        Gauge.builder("acm.config.keys", dataIdStats, AcmConfigStats.DataIdStats::getKeyCount)
+                .tags(tags).description("number of keys of the data-id").register(registry);
+        for(AcmConfigStats.Outcome outcome:AcmConfigStats.Outcome.values()){
+            Gauge.builder("acm.config.outcome", dataIdStats, s -> s.getOutcome()==outcome ? 1 : 0)
+                    .tags(tags).tag("outcome", outcome.name().toLowerCase()).description("1 if the data-id was loaded with the outcome at startup").register(registry);
+        }
+        FunctionCounter.builder("acm.config.push", dataIdStats, AcmConfigStats.DataIdStats::getPushCount)
+                .tags(tags).description("number of contents pushed by acm").register(registry);
+        FunctionTimer.builder("acm.config.refresh", dataIdStats, AcmConfigStats.DataIdStats::getRefreshCount, AcmConfigStats.DataIdStats::getRefreshTime, TimeUnit.MILLISECONDS)
+                .tags(tags).description("refreshes that changed the config, including the rebind").register(registry);
+    }
+
+    /**
+     * a time that was not recorded is reported as NaN rather than -1
+     */
+    private static double unknownAsNaN(double time) {
+        return time<0 ? Double.NaN : time;
+    }
+}
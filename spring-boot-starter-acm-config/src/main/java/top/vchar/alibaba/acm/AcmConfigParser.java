@@ -0,0 +1,147 @@
+package top.vchar.alibaba.acm;
+
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * <p> parse the content of a yml or properties data-id </p>
+ * <p> the content is flattened straight into a map and the result is cached by the content digest,
+ * so the same content pushed again is never parsed twice </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 10:12
+ */
+public class AcmConfigParser {
+
+    /**
+     * max number of parsed contents kept in the cache
+     */
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<String, Map<String, Object>> cache = Collections.synchronizedMap(new LinkedHashMap<String, Map<String, Object>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {
+            return size()>CACHE_SIZE;
+        }
+    });
+
+    private AcmConfigParser(){
+    }
+
+    /**
+     * whether the data-id is a yml or properties file
+     * @param dataId dataId
+     * @return true if the content can be parsed into properties
+     */
+    public static boolean isPropertiesType(String dataId){
+        return isYaml(dataId) || dataId.endsWith(".properties");
+    }
+
+    private static boolean isYaml(String dataId){
+        return dataId.endsWith(".yaml") || dataId.endsWith(".yml");
+    }
+
+    /**
+     * parse a yml or properties content
+     * @param dataId dataId, the suffix decides the format
+     * @param content config content
+     * @return return config info, null if the content is empty
+     * @throws IOException parse exception
+     */
+    public static Properties toProperties(String dataId, String content) throws IOException {
+        if (StringUtils.isEmpty(content)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        properties.putAll(parse(dataId, content, null));
+        return properties;
+    }
+
+    /**
+     * parse the content of a data-id into a flat config map, yml and properties files are flattened
+     * and any other data-id is stored as one value keyed by the data-id
+     * @param dataId dataId
+     * @param content config content
+     * @return return config, null if there is nothing to load
+     * @throws IOException parse exception
+     */
+    public static Map<String, Object> toSource(String dataId, String content) throws IOException {
+        return toSource(dataId, content, null);
+    }
+
+    /**
+     * parse the content of a data-id into a flat config map
+     * @param dataId dataId
+     * @param content config content
+     * @param hash the content digest if already known, see {@link AcmContentDigest#of(String)}
+     * @return return config, null if there is nothing to load; a parsed config is read-only
+     * @throws IOException parse exception
+     */
+    public static Map<String, Object> toSource(String dataId, String content, String hash) throws IOException {
+        if(isPropertiesType(dataId)){
+            if(!StringUtils.isEmpty(content)){
+                Map<String, Object> source = parse(dataId, content, hash);
+                if(!source.isEmpty()){
+                    return source;
+                }
+            }
+        }else if(null!=content && content.length()>0){
+            //not yaml file or properties file, a large content is kept off the heap; the key has no namespace
+            Map<String, Object> source = new HashMap<>();
+            source.put(AcmNamespacedDataId.dataIdOf(dataId), AcmMappedContent.store(dataId, content, hash));
+            return source;
+        }
+        return null;
+    }
+
+    private static Map<String, Object> parse(String dataId, String content, String hash) throws IOException {
+        // the {cipher} values are wrapped only when they are decrypted lazily
+        String key = (AcmEncryptedValue.isEnabled() ? "cipher:" : "")+(isYaml(dataId) ? "yaml:" : "properties:")
+                +(null==hash ? AcmContentDigest.of(content) : hash);
+        Map<String, Object> source = cache.get(key);
+        if(null==source){
+            Map<String, Object> target = new HashMap<>();
+            if(isYaml(dataId)){
+                parseYaml(content, target);
+            }else {
+                parseProperties(content, target);
+            }
+            AcmEncryptedValue.wrap(target);
+            source = AcmPropertySource.compact(target);
+            cache.put(key, source);
+        }
+        return source;
+    }
+
+    private static void parseYaml(String content, Map<String, Object> target) {
+        if(!AcmYamlFlattener.flatten(content, target)){
+            target.clear();
+            YamlPropertiesFactoryBean yamlFactory = new YamlPropertiesFactoryBean();
+            yamlFactory.setResources(new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)));
+            Properties properties = yamlFactory.getObject();
+            if(null!=properties){
+                for(Map.Entry<Object, Object> entry:properties.entrySet()){
+                    target.put(entry.getKey().toString(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static void parseProperties(String content, Map<String, Object> target) throws IOException {
+        // Properties.load calls put for every entry, so the entries go straight into the target
+        new Properties(){
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                return target.put(key.toString(), value);
+            }
+        }.load(new StringReader(content));
+    }
+}
@@ -0,0 +1,17 @@
+package top.vchar.alibaba.acm;
+
+/**
+ * <p> callback after the acm config in the environment was refreshed </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 11:02
+ */
+public interface AcmConfigRefreshListener {
+
+    /**
+     * the environment already holds the new config when this is called
+     * @param event the changed keys
+     */
+    void onRefresh(AcmConfigChangeEvent event);
+}
@@ -0,0 +1,143 @@
+package top.vchar.alibaba.acm;
+
+import com.alibaba.edas.acm.listener.ConfigChangeListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * <p> listen to every loaded data-id and refresh the environment and the configuration properties beans on change </p>
+ * <p> an {@link AcmConfigChangeEvent} is published after the beans bound to the changed keys were rebound, both on the
+ * {@link AcmListenerDispatcher} </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 11:48
+ */
+public class AcmConfigRefresher implements AcmConfigRefreshListener, SmartInitializingSingleton, ApplicationEventPublisherAware, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(AcmConfigRefresher.class);
+
+    private final AcmConfigRepository repository;
+
+    private final AcmConfigurationPropertiesRebinder rebinder;
+
+    private final DiamondProxy diamondProxy;
+
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * the listener added to acm for each data-id, removed when the context closes
+     */
+    private final Map<String, ConfigChangeListener> listeners = new ConcurrentHashMap<>();
+
+    private final AcmRefreshDebouncer debouncer;
+
+    /**
+     * runs the rebind and the event listeners off the refresh thread, null to run them on it
+     */
+    private final AcmListenerDispatcher dispatcher;
+
+    private final Consumer<AcmConfigChangeEvent> callback = this::notifyChange;
+
+    private volatile boolean closed = false;
+
+    public AcmConfigRefresher(AcmConfigRepository repository, AcmConfigurationPropertiesRebinder rebinder, DiamondProxy diamondProxy) {
+        this(repository, rebinder, diamondProxy, 0);
+    }
+
+    /**
+     * @param repository acm config repository
+     * @param rebinder rebinder
+     * @param diamondProxy diamond proxy
+     * @param refreshDebounce quiet time in ms the pushes are queued for before they are applied together, 0 to apply each push at once
+     */
+    public AcmConfigRefresher(AcmConfigRepository repository, AcmConfigurationPropertiesRebinder rebinder, DiamondProxy diamondProxy, long refreshDebounce) {
+        this(repository, rebinder, diamondProxy, refreshDebounce, null);
+    }
+
+    /**
+     * @param repository acm config repository
+     * @param rebinder rebinder
+     * @param diamondProxy diamond proxy
+     * @param refreshDebounce quiet time in ms the pushes are queued for before they are applied together, 0 to apply each push at once
+     * @param dispatcher runs the rebind and the event listeners of each change, null to run them on the refresh thread
+     */
+    public AcmConfigRefresher(AcmConfigRepository repository, AcmConfigurationPropertiesRebinder rebinder, DiamondProxy diamondProxy, long refreshDebounce,
+                              AcmListenerDispatcher dispatcher) {
+        this.repository = repository;
+        this.rebinder = rebinder;
+        this.diamondProxy = diamondProxy;
+        this.debouncer = new AcmRefreshDebouncer(repository, refreshDebounce);
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        repository.addListener(this);
+        String group = repository.getGroup();
+        for(String dataId:repository.getDataIds()){
+            try{
+                ConfigChangeListener listener = new ConfigChangeListener() {
+                    @Override
+                    public void receiveConfigInfo(String configInfo) {
+                        if(!closed){
+                            debouncer.submit(dataId, configInfo);
+                        }
+                    }
+                };
+                diamondProxy.addListener(dataId, group, listener);
+                listeners.put(dataId, listener);
+                logger.info("listen to acm config "+dataId);
+            }catch (Exception e){
+                logger.error("listen to acm config "+dataId+" Exception: "+e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void onRefresh(AcmConfigChangeEvent event) {
+        if(null==dispatcher){
+            notifyChange(event);
+        }else {
+            dispatcher.dispatch(event, callback);
+        }
+    }
+
+    private void notifyChange(AcmConfigChangeEvent event) {
+        if(closed){
+            return;
+        }
+        rebinder.rebind(event.getChangedKeys());
+        applicationEventPublisher.publishEvent(event);
+    }
+
+    @Override
+    public void destroy() {
+        // a push already being delivered may still arrive, it is ignored
+        this.closed = true;
+        debouncer.close();
+        repository.removeListener(this);
+        String group = repository.getGroup();
+        for(Map.Entry<String, ConfigChangeListener> entry:listeners.entrySet()){
+            try{
+                diamondProxy.removeListener(entry.getKey(), group, entry.getValue());
+            }catch (Exception e){
+                logger.warn("remove acm config listener "+entry.getKey()+" Exception: "+e.getMessage());
+            }
+        }
+        listeners.clear();
+    }
+}
@@ -0,0 +1,350 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p> holds the config of every loaded data-id and keeps the environment in sync with it </p>
+ * <p> the merged config is exposed as one {@link AcmPropertySource} placed before the applicationConfig property sources,
+ * it is rebuilt and replaced as a whole, so readers never see a half applied change </p>
+ * <p> the placeholders of the acm config are resolved in advance, see {@link AcmPlaceholderGraph} </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 11:05
+ */
+public class AcmConfigRepository {
+
+    public static final String BEAN_NAME = "acmConfigRepository";
+
+    private static final Log logger = LogFactory.getLog(AcmConfigRepository.class);
+
+    private volatile ConfigurableEnvironment environment;
+
+    private final String namespace;
+
+    private final String group;
+
+    /**
+     * the acm settings, the remote config is merged over them
+     */
+    private final Map<String, Object> baseSource;
+
+    /**
+     * config of each data-id, in merge order: sorted data-id-list, then the application data-id
+     */
+    private final LinkedHashMap<String, Map<String, Object>> dataIdSources;
+
+    /**
+     * content hash of the latest content of each data-id handed to a refresh, a push with the same content is ignored
+     */
+    private final Map<String, String> dataIdHashes = new HashMap<>();
+
+    /**
+     * number of contents of each data-id handed to a refresh, a content parsed while a later one was handed over is
+     * not applied
+     */
+    private final Map<String, Long> dataIdVersions = new HashMap<>();
+
+    /**
+     * the merged acm config as parsed, before the placeholders are resolved
+     */
+    private Map<String, Object> merged;
+
+    /**
+     * the acm config currently in the environment, with the placeholders resolved in advance
+     */
+    private AcmPropertySource propertySource;
+
+    private final AcmPlaceholderGraph placeholders = new AcmPlaceholderGraph(ACMConfigEnvironmentPostProcessor.ACM_PROPERTY_SOURCE_NAME);
+
+    private final AcmSnapshotStore snapshotStore;
+
+    private final AcmConfigStats stats;
+
+    private final DiamondProxy diamondProxy;
+
+    private final List<AcmConfigRefreshListener> listeners = new CopyOnWriteArrayList<>();
+
+    public AcmConfigRepository(ConfigurableEnvironment environment, String namespace, String group, Map<String, Object> baseSource,
+                               LinkedHashMap<String, Map<String, Object>> dataIdSources, AcmSnapshotStore snapshotStore, AcmConfigStats stats,
+                               DiamondProxy diamondProxy) {
+        this.environment = environment;
+        this.namespace = namespace;
+        this.group = group;
+        this.baseSource = baseSource;
+        this.dataIdSources = dataIdSources;
+        for(Map.Entry<String, Map<String, Object>> entry:dataIdSources.entrySet()){
+            entry.setValue(AcmPropertySource.compact(entry.getValue()));
+        }
+        this.snapshotStore = snapshotStore;
+        this.stats = stats;
+        this.diamondProxy = diamondProxy;
+    }
+
+    /**
+     * spring boot may copy the environment into one of another type after the config was loaded,
+     * the changes must go to the environment of the application context
+     * @param environment environment of the application context, it holds the installed acm config
+     */
+    synchronized void setEnvironment(ConfigurableEnvironment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * @return return the environment the acm config is installed in
+     */
+    public ConfigurableEnvironment getEnvironment() {
+        return environment;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @return return the diamond proxy the config was loaded with, changes are listened to with the same proxy
+     */
+    public DiamondProxy getDiamondProxy() {
+        return diamondProxy;
+    }
+
+    /**
+     * @return return the startup and refresh stats of the data-ids
+     */
+    public AcmConfigStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return return the loaded data-ids in merge order
+     */
+    public synchronized List<String> getDataIds() {
+        return new ArrayList<>(dataIdSources.keySet());
+    }
+
+    /**
+     * @param name property name
+     * @return return the value of the property in the acm config, null if not found
+     */
+    public synchronized Object getProperty(String name) {
+        return null==propertySource ? null : propertySource.getProperty(name);
+    }
+
+    /**
+     * @param dataId dataId
+     * @return return the read-only config of the data-id as parsed, without the other data-ids merged, null if not loaded
+     */
+    public synchronized Map<String, Object> getSource(String dataId) {
+        return dataIdSources.get(dataId);
+    }
+
+    /**
+     * @return return the placeholders of the acm config resolved in advance and the keys they read
+     */
+    public AcmPlaceholderGraph getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * read a large data-id that is not yml or properties without copying it onto the heap, see {@link AcmMappedContent}
+     * @param name property name, the data-id for a data-id that is not yml or properties
+     * @return return the UTF-8 value of the property in the acm config, null if not found
+     */
+    public Resource getResource(String name) {
+        Object value = getProperty(name);
+        if(value instanceof AcmMappedContent){
+            return ((AcmMappedContent) value).getResource();
+        }
+        return null==value ? null : new ByteArrayResource(value.toString().getBytes(StandardCharsets.UTF_8), name);
+    }
+
+    public void addListener(AcmConfigRefreshListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(AcmConfigRefreshListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * install the acm config into the environment
+     * @param before name of the property source the acm config takes precedence over, usually the first applicationConfig
+     */
+    public synchronized void install(String before) {
+        this.merged = AcmPropertySource.compact(merge());
+        placeholders.build(environment, merged);
+        this.propertySource = new AcmPropertySource(ACMConfigEnvironmentPostProcessor.ACM_PROPERTY_SOURCE_NAME, placeholders.apply(merged));
+        MutablePropertySources propertySources = environment.getPropertySources();
+        if(null!=before && propertySources.contains(before)){
+            propertySources.addBefore(before, propertySource);
+        }else {
+            propertySources.addLast(propertySource);
+        }
+    }
+
+    /**
+     * refresh a data-id with the content pushed by acm, nothing is applied when no key changed
+     * @param dataId dataId
+     * @param content new content
+     */
+    public void refresh(String dataId, String content) {
+        refresh(Collections.singletonMap(dataId, content));
+    }
+
+    /**
+     * refresh several data-ids with the contents pushed by acm, the changes are applied to the environment at once
+     * and the listeners are called once for all of them; nothing is applied when no key changed
+     * <p> the contents are parsed outside of the lock, a refresh of the same data-id called meanwhile wins: the content
+     * handed over last is the one applied, whatever the order the parses complete in </p>
+     * @param contents new content of each data-id
+     */
+    public void refresh(Map<String, String> contents) {
+        long start = System.nanoTime();
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for(Map.Entry<String, String> entry:contents.entrySet()){
+            hashes.put(entry.getKey(), null==entry.getValue() ? null : AcmContentDigest.of(entry.getValue()));
+        }
+        Map<String, Long> versions = new HashMap<>();
+        synchronized (this){
+            Iterator<Map.Entry<String, String>> iterator = hashes.entrySet().iterator();
+            while(iterator.hasNext()){
+                Map.Entry<String, String> entry = iterator.next();
+                String dataId = entry.getKey();
+                if(!dataIdSources.containsKey(dataId)){
+                    logger.warn(dataId+" is not loaded, ignore the change");
+                    iterator.remove();
+                    continue;
+                }
+                stats.get(dataId).pushed(contents.get(dataId));
+                if(dataIdHashes.containsKey(dataId) && Objects.equals(entry.getValue(), dataIdHashes.get(dataId))){
+                    logger.debug(dataId+" acm config content not changed");
+                    iterator.remove();
+                    continue;
+                }
+                dataIdHashes.put(dataId, entry.getValue());
+                versions.put(dataId, dataIdVersions.merge(dataId, 1L, Long::sum));
+            }
+        }
+        Map<String, Map<String, Object>> sources = new LinkedHashMap<>();
+        for(Map.Entry<String, String> entry:hashes.entrySet()){
+            String dataId = entry.getKey();
+            try{
+                long parseStart = System.nanoTime();
+                Map<String, Object> source = AcmConfigParser.toSource(dataId, contents.get(dataId), entry.getValue());
+                stats.get(dataId).parsed(System.nanoTime()-parseStart, source);
+                sources.put(dataId, AcmPropertySource.compact(null==source ? Collections.emptyMap() : source));
+            }catch (IOException | RuntimeException e){
+                logger.error(dataId+" parse acm config Exception, keep the current config: "+e.getMessage(), e);
+                synchronized (this){
+                    // the same content pushed again is parsed again
+                    if(versions.get(dataId).equals(dataIdVersions.get(dataId))){
+                        dataIdHashes.remove(dataId);
+                    }
+                }
+            }
+        }
+        if(sources.isEmpty()){
+            return;
+        }
+        List<String> dataIds = new ArrayList<>();
+        AcmConfigChangeEvent event = null;
+        synchronized (this){
+            Set<String> changedKeys = new HashSet<>();
+            for(Map.Entry<String, Map<String, Object>> entry:sources.entrySet()){
+                String dataId = entry.getKey();
+                if(!versions.get(dataId).equals(dataIdVersions.get(dataId))){
+                    logger.debug(dataId+" acm config content superseded by a later one, not applied");
+                    continue;
+                }
+                dataIds.add(dataId);
+                Map<String, Object> source = entry.getValue();
+                Map<String, Object> previous = dataIdSources.put(dataId, source);
+                if(null==previous){
+                    previous = Collections.emptyMap();
+                }
+                Set<String> keys = new HashSet<>(source.keySet());
+                keys.addAll(previous.keySet());
+                AcmConfigChangeEvent dataIdEvent = AcmConfigChangeEvent.diff(this, Collections.singletonList(dataId), previous, source, keys);
+                if(null!=dataIdEvent){
+                    changedKeys.addAll(dataIdEvent.getChangedKeys());
+                }
+            }
+            if(dataIds.isEmpty()){
+                return;
+            }
+            // diff each data-id first, then check whether the changed keys are shadowed by another data-id
+            if(!changedKeys.isEmpty()){
+                Map<String, Object> raw = AcmPropertySource.compact(merge());
+                event = AcmConfigChangeEvent.diff(this, dataIds, merged, raw, changedKeys);
+                if(null!=event){
+                    // only the keys reading a changed key are resolved again
+                    Set<String> derivedKeys = placeholders.update(environment, raw, event.getChangedKeys());
+                    if(!derivedKeys.isEmpty()){
+                        event = event.withDerivedKeys(derivedKeys);
+                    }
+                    AcmPropertySource after = new AcmPropertySource(propertySource.getName(), placeholders.apply(raw));
+                    this.merged = raw;
+                    this.propertySource = after;
+                    environment.getPropertySources().replace(after.getName(), after);
+                }
+            }
+            if(null==event){
+                logger.info(String.join(",", dataIds)+" acm config changed but no key changed");
+            }
+        }
+        for(String dataId:dataIds){
+            saveSnapshot(dataId, contents.get(dataId));
+        }
+        if(null==event){
+            return;
+        }
+        logger.info(String.join(",", dataIds)+" acm config refreshed, changed keys: "+event.getChangedKeys()
+                +(event.getDerivedKeys().isEmpty() ? "" : ", derived from them: "+event.getDerivedKeys()));
+        for(AcmConfigRefreshListener listener:listeners){
+            try{
+                listener.onRefresh(event);
+            }catch (Exception e){
+                logger.error("acm config refresh listener Exception: "+e.getMessage(), e);
+            }
+        }
+        long nanos = System.nanoTime()-start;
+        for(String dataId:dataIds){
+            stats.get(dataId).refreshed(nanos, event.getChangedKeys().size());
+        }
+    }
+
+    private Map<String, Object> merge() {
+        Map<String, Object> merged = new HashMap<>(baseSource);
+        for(Map<String, Object> source:dataIdSources.values()){
+            if(null!=source){
+                merged.putAll(source);
+            }
+        }
+        return merged;
+    }
+
+    private void saveSnapshot(String dataId, String content) {
+        if(null!=snapshotStore && !StringUtils.isEmpty(content)){
+            try{
+                snapshotStore.save(namespace, group, dataId, content);
+            }catch (IOException e){
+                logger.warn(dataId+" save local snapshot Exception: "+e.getMessage());
+            }
+        }
+    }
+}
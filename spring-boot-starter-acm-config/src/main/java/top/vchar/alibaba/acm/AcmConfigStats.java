@@ -0,0 +1,292 @@
+package top.vchar.alibaba.acm;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p> timings and counters of the acm config, recorded for every data-id at startup and on each refresh </p>
+ * <p> published by {@link AcmConfigMetrics} and {@link AcmConfigEndpoint} </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 16:05
+ */
+public class AcmConfigStats {
+
+    /**
+     * how the content of a data-id was obtained at startup
+     */
+    public enum Outcome {
+        /**
+         * fetched from acm
+         */
+        SUCCESS,
+        /**
+         * served from the local snapshot before asking acm
+         */
+        SNAPSHOT,
+        /**
+         * served from the config index built into the application, see {@link AcmConfigIndex}
+         */
+        INDEX,
+        /**
+         * acm failed, served from the local snapshot
+         */
+        FALLBACK,
+        /**
+         * acm did not answer before the startup deadline
+         */
+        TIMEOUT,
+        /**
+         * acm failed and there is no snapshot
+         */
+        FAILED
+    }
+
+    private final Map<String, DataIdStats> dataIds = new ConcurrentHashMap<>();
+
+    private final List<Consumer<DataIdStats>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile long startupTime = -1;
+
+    /**
+     * @param dataId dataId
+     * @return return the stats of the data-id, created on first use
+     */
+    public DataIdStats get(String dataId) {
+        DataIdStats dataIdStats = dataIds.get(dataId);
+        if(null==dataIdStats){
+            DataIdStats created = new DataIdStats(dataId);
+            dataIdStats = dataIds.putIfAbsent(dataId, created);
+            if(null==dataIdStats){
+                dataIdStats = created;
+                for(Consumer<DataIdStats> listener:listeners){
+                    listener.accept(created);
+                }
+            }
+        }
+        return dataIdStats;
+    }
+
+    /**
+     * the data-ids loaded after startup, lazily, prefetched or of another namespace, get their stats later
+     * @param listener called with the stats of every data-id: the existing ones now, the others when created,
+     *                 maybe twice for a data-id created meanwhile
+     */
+    public void forEachDataId(Consumer<DataIdStats> listener) {
+        listeners.add(listener);
+        for(DataIdStats dataIdStats:dataIds.values()){
+            listener.accept(dataIdStats);
+        }
+    }
+
+    /**
+     * @return return the stats of every data-id sorted by data-id
+     */
+    public List<DataIdStats> getDataIds() {
+        List<DataIdStats> list = new ArrayList<>(dataIds.values());
+        list.sort(Comparator.comparing(DataIdStats::getDataId));
+        return list;
+    }
+
+    /**
+     * @return return the time spent loading the remote config at startup in ms, -1 if not loaded yet
+     */
+    public long getStartupTime() {
+        return startupTime;
+    }
+
+    void setStartupTime(long startupTime) {
+        this.startupTime = startupTime;
+    }
+
+    /**
+     * number of bytes of the content once encoded in utf-8, without encoding it
+     * @param content content
+     * @return return the payload size
+     */
+    static long payloadBytes(String content) {
+        if(null==content){
+            return 0;
+        }
+        long bytes = 0;
+        for(int i=0; i<content.length(); i++){
+            char c = content.charAt(i);
+            if(c<0x80){
+                bytes++;
+            }else if(c<0x800){
+                bytes += 2;
+            }else if(Character.isHighSurrogate(c) && i+1<content.length() && Character.isLowSurrogate(content.charAt(i+1))){
+                bytes += 4;
+                i++;
+            }else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    public static class DataIdStats {
+
+        private final String dataId;
+
+        private Outcome outcome;
+
+        private long fetchNanos = -1;
+
+        private long parseNanos = -1;
+
+        private long payloadBytes;
+
+        private int keyCount;
+
+        private long lastFetchTime;
+
+        private long pushCount;
+
+        private long refreshCount;
+
+        private long refreshNanos;
+
+        private long lastRefreshTime;
+
+        private int lastChangedKeys;
+
+        DataIdStats(String dataId) {
+            this.dataId = dataId;
+        }
+
+        /**
+         * set how the content was obtained, a data-id that timed out keeps its outcome even if the fetch completes later
+         * @param outcome outcome
+         */
+        synchronized void outcome(Outcome outcome) {
+            if(this.outcome!=Outcome.TIMEOUT){
+                this.outcome = outcome;
+            }
+        }
+
+        synchronized void fetched(long nanos, String content) {
+            if(outcome!=Outcome.TIMEOUT){
+                this.fetchNanos = nanos;
+                this.payloadBytes = payloadBytes(content);
+                this.lastFetchTime = System.currentTimeMillis();
+            }
+        }
+
+        synchronized void parsed(long nanos, Map<String, Object> source) {
+            this.parseNanos = nanos;
+            this.keyCount = null==source ? 0 : source.size();
+        }
+
+        /**
+         * a push from acm was received
+         * @param content pushed content
+         */
+        synchronized void pushed(String content) {
+            this.pushCount++;
+            this.payloadBytes = payloadBytes(content);
+            this.lastFetchTime = System.currentTimeMillis();
+        }
+
+        /**
+         * a push changed the config and was applied
+         * @param nanos time spent parsing, merging and installing the change
+         * @param changedKeys number of changed keys
+         */
+        synchronized void refreshed(long nanos, int changedKeys) {
+            this.refreshCount++;
+            this.refreshNanos += nanos;
+            this.lastRefreshTime = System.currentTimeMillis();
+            this.lastChangedKeys = changedKeys;
+        }
+
+        public String getDataId() {
+            return dataId;
+        }
+
+        public synchronized Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return return the startup fetch latency in ms, -1 if not fetched
+         */
+        public synchronized double getFetchTime() {
+            return toMillis(fetchNanos);
+        }
+
+        /**
+         * @return return the last parse time in ms, -1 if not parsed
+         */
+        public synchronized double getParseTime() {
+            return toMillis(parseNanos);
+        }
+
+        public synchronized long getPayloadBytes() {
+            return payloadBytes;
+        }
+
+        public synchronized int getKeyCount() {
+            return keyCount;
+        }
+
+        public synchronized long getLastFetchTime() {
+            return lastFetchTime;
+        }
+
+        public synchronized long getPushCount() {
+            return pushCount;
+        }
+
+        public synchronized long getRefreshCount() {
+            return refreshCount;
+        }
+
+        /**
+         * @return return the total time spent applying the refreshes in ms
+         */
+        public synchronized double getRefreshTime() {
+            return toMillis(refreshNanos);
+        }
+
+        public synchronized long getLastRefreshTime() {
+            return lastRefreshTime;
+        }
+
+        public synchronized int getLastChangedKeys() {
+            return lastChangedKeys;
+        }
+
+        /**
+         * @return return a snapshot of the stats
+         */
+        public synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("dataId", dataId);
+            map.put("outcome", outcome);
+            map.put("fetchTime", getFetchTime());
+            map.put("parseTime", getParseTime());
+            map.put("payloadBytes", payloadBytes);
+            map.put("keyCount", keyCount);
+            map.put("lastFetchTime", toDate(lastFetchTime));
+            map.put("pushCount", pushCount);
+            map.put("refreshCount", refreshCount);
+            map.put("refreshTime", getRefreshTime());
+            map.put("lastRefreshTime", toDate(lastRefreshTime));
+            map.put("lastChangedKeys", lastChangedKeys);
+            return map;
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos<0 ? -1 : nanos/(double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        private static Date toDate(long time) {
+            return time>0 ? new Date(time) : null;
+        }
+    }
+}
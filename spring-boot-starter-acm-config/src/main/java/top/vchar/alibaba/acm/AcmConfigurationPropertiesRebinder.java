@@ -0,0 +1,349 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationBeanFactoryMetadata;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConfigurationPropertiesBindingPostProcessor;
+import org.springframework.boot.context.properties.bind.*;
+import org.springframework.boot.context.properties.bind.handler.IgnoreErrorsBindHandler;
+import org.springframework.boot.context.properties.bind.handler.NoUnboundElementsBindHandler;
+import org.springframework.boot.context.properties.bind.validation.ValidationBindHandler;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.UnboundElementsSourceFilter;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.util.ClassUtils;
+import org.springframework.validation.Validator;
+import org.springframework.validation.annotation.Validated;
+
+import java.beans.PropertyDescriptor;
+import java.util.*;
+
+/**
+ * <p> rebind the {@link ConfigurationProperties} beans on the existing instances after the acm config changed </p>
+ * <p> the beans are only bound again, they are neither destroyed nor re-initialized: the config is bound to a new
+ * instance created with the no-arg constructor, and the properties bound, or reset because a key was removed from
+ * acm, are copied onto the bean, so that a removed key, or an element removed from a list or a map, resets the
+ * property to its default; the other properties, such as the ones set in code, are left as they are. A bean without
+ * a no-arg constructor is bound in place and keeps the value of a removed key </p>
+ * <p> a {@link Validated} bean is validated like at startup, the new config is not copied when it is invalid </p>
+ * <p> only the beans whose prefix is an ancestor of a changed key are rebound </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 11:30
+ */
+public class AcmConfigurationPropertiesRebinder implements ApplicationContextAware {
+
+    private static final Log logger = LogFactory.getLog(AcmConfigurationPropertiesRebinder.class);
+
+    private static final String JSR303_VALIDATOR_CLASS = "org.springframework.validation.beanvalidation.OptionalValidatorFactoryBean";
+
+    private ApplicationContext applicationContext;
+
+    /**
+     * name, annotation and prefix of each configuration properties bean, resolved on the first rebind
+     */
+    private volatile List<ConfigurationPropertiesBean> beans;
+
+    /**
+     * the jsr-303 validator of the {@link Validated} beans, created on the first validation
+     */
+    private volatile Validator jsr303Validator;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * rebind all the {@link ConfigurationProperties} beans
+     */
+    public void rebind() {
+        rebind(null);
+    }
+
+    /**
+     * rebind the {@link ConfigurationProperties} beans bound to the changed keys
+     * @param changedKeys the changed keys, null to rebind all the beans
+     */
+    public void rebind(Collection<String> changedKeys) {
+        List<String> names = null;
+        if(null!=changedKeys){
+            if(changedKeys.isEmpty()){
+                return;
+            }
+            names = new ArrayList<>(changedKeys.size());
+            for(String key:changedKeys){
+                names.add(canonical(key));
+            }
+        }
+        Binder binder = Binder.get((ConfigurableEnvironment) applicationContext.getEnvironment());
+        for(ConfigurationPropertiesBean bean:getBeans()){
+            if(null==names || bean.isBoundTo(names)){
+                rebind(binder, bean.name, bean.annotation, names);
+            }
+        }
+    }
+
+    private List<ConfigurationPropertiesBean> getBeans() {
+        List<ConfigurationPropertiesBean> beans = this.beans;
+        if(null==beans){
+            beans = new ArrayList<>();
+            for(Map.Entry<String, ConfigurationProperties> entry:getConfigurationPropertiesBeans().entrySet()){
+                beans.add(new ConfigurationPropertiesBean(entry.getKey(), entry.getValue()));
+            }
+            this.beans = beans;
+        }
+        return beans;
+    }
+
+    /**
+     * @return return the name and the annotation of every {@link ConfigurationProperties} singleton bean
+     */
+    Map<String, ConfigurationProperties> getConfigurationPropertiesBeans() {
+        Map<String, ConfigurationProperties> beans = new LinkedHashMap<>();
+        ConfigurationBeanFactoryMetadata metadata = null;
+        if(applicationContext.containsBean(ConfigurationBeanFactoryMetadata.BEAN_NAME)){
+            metadata = applicationContext.getBean(ConfigurationBeanFactoryMetadata.BEAN_NAME, ConfigurationBeanFactoryMetadata.class);
+        }
+        for(String name:applicationContext.getBeanDefinitionNames()){
+            if(!applicationContext.isSingleton(name)){
+                continue;
+            }
+            ConfigurationProperties annotation = null;
+            if(null!=metadata){
+                annotation = metadata.findFactoryAnnotation(name, ConfigurationProperties.class);
+            }
+            if(null==annotation){
+                annotation = applicationContext.findAnnotationOnBean(name, ConfigurationProperties.class);
+            }
+            if(null!=annotation){
+                beans.put(name, annotation);
+            }
+        }
+        return beans;
+    }
+
+    /**
+     * @param binder binder
+     * @param name bean name
+     * @param annotation annotation of the bean
+     * @param changedKeys canonical changed keys, null if only the bound properties are copied
+     */
+    void rebind(Binder binder, String name, ConfigurationProperties annotation, Collection<String> changedKeys) {
+        try{
+            Object bean = applicationContext.getBean(name);
+            if(AopUtils.isAopProxy(bean) && bean instanceof Advised){
+                bean = ((Advised) bean).getTargetSource().getTarget();
+            }
+            if(null==bean){
+                return;
+            }
+            Class<?> type = ClassUtils.getUserClass(bean);
+            Validated validated = findValidated(name, type);
+            Bindable<?> bindable;
+            Object instance;
+            try{
+                instance = BeanUtils.instantiateClass(type);
+                bindable = Bindable.ofInstance(instance);
+            }catch (BeanInstantiationException e){
+                logger.debug(name+" has no no-arg constructor, rebind it in place: "+e.getMessage());
+                binder.bind(annotation.prefix(), withAnnotations(Bindable.ofInstance(bean), annotation, validated), getBindHandler(annotation, validated, bean));
+                return;
+            }
+            // the properties bound, and the ones of the changed keys that may have been removed
+            Set<String> touched = new HashSet<>();
+            if(null!=changedKeys){
+                touched.addAll(changedKeys);
+            }
+            BindHandler handler = new AbstractBindHandler(getBindHandler(annotation, validated, instance)) {
+                @Override
+                public Object onSuccess(ConfigurationPropertyName propertyName, Bindable<?> target, BindContext context, Object result) {
+                    touched.add(canonical(propertyName.toString()));
+                    return super.onSuccess(propertyName, target, context, result);
+                }
+            };
+            // an invalid config throws before anything is copied
+            binder.bind(annotation.prefix(), withAnnotations(bindable, annotation, validated), handler);
+            copyProperties(instance, bean, canonical(annotation.prefix()), touched, Collections.newSetFromMap(new IdentityHashMap<>()));
+        }catch (Exception e){
+            logger.error("rebind "+name+" Exception: "+e.getMessage(), e);
+        }
+    }
+
+    private static Bindable<?> withAnnotations(Bindable<?> bindable, ConfigurationProperties annotation, Validated validated) {
+        return null==validated ? bindable.withAnnotations(annotation) : bindable.withAnnotations(annotation, validated);
+    }
+
+    /**
+     * copy the properties of a freshly bound instance onto the bean, like the binder sets them: through the setter,
+     * or into the collection, the map or the nested bean held by a property without setter; a nested bean of the same
+     * type is copied in place so the references to it stay valid. Only the properties under a touched key are copied
+     * @param source freshly bound instance
+     * @param target bean
+     * @param path canonical name the bean is bound to
+     * @param touched canonical keys bound or removed
+     * @param copied the nested beans already copied
+     */
+    @SuppressWarnings("unchecked")
+    static void copyProperties(Object source, Object target, String path, Set<String> touched, Set<Object> copied) {
+        if(!copied.add(target)){
+            return;
+        }
+        BeanWrapper from = PropertyAccessorFactory.forBeanPropertyAccess(source);
+        BeanWrapper to = PropertyAccessorFactory.forBeanPropertyAccess(target);
+        for(PropertyDescriptor descriptor:from.getPropertyDescriptors()){
+            String property = descriptor.getName();
+            if(null==descriptor.getReadMethod() || "class".equals(property) || !to.isReadableProperty(property)){
+                continue;
+            }
+            String propertyPath = path.isEmpty() ? canonical(property) : path+"."+canonical(property);
+            if(!isTouched(propertyPath, touched)){
+                continue;
+            }
+            Object value = from.getPropertyValue(property);
+            Object current = to.getPropertyValue(property);
+            if(null!=value && null!=current && value!=current && value.getClass()==current.getClass() && isNestedBean(value.getClass())){
+                copyProperties(value, current, propertyPath, touched, copied);
+            }else if(to.isWritableProperty(property)){
+                to.setPropertyValue(property, value);
+            }else if(current instanceof Collection && value instanceof Collection && current!=value){
+                ((Collection<Object>) current).clear();
+                ((Collection<Object>) current).addAll((Collection<Object>) value);
+            }else if(current instanceof Map && value instanceof Map && current!=value){
+                ((Map<Object, Object>) current).clear();
+                ((Map<Object, Object>) current).putAll((Map<Object, Object>) value);
+            }
+        }
+    }
+
+    private static boolean isTouched(String path, Set<String> touched) {
+        for(String key:touched){
+            if(key.startsWith(path) && (key.length()==path.length() || key.charAt(path.length())=='.' || key.charAt(path.length())=='[')){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNestedBean(Class<?> type) {
+        return !BeanUtils.isSimpleValueType(type) && !type.isArray() && !Collection.class.isAssignableFrom(type)
+                && !Map.class.isAssignableFrom(type) && !type.getName().startsWith("java.");
+    }
+
+    private BindHandler getBindHandler(ConfigurationProperties annotation, Validated validated, Object target) {
+        BindHandler handler = BindHandler.DEFAULT;
+        if(annotation.ignoreInvalidFields()){
+            handler = new IgnoreErrorsBindHandler(handler);
+        }
+        if(!annotation.ignoreUnknownFields()){
+            handler = new NoUnboundElementsBindHandler(handler, new UnboundElementsSourceFilter());
+        }
+        List<Validator> validators = getValidators(validated, target);
+        if(!validators.isEmpty()){
+            handler = new ValidationBindHandler(handler, validators.toArray(new Validator[0]));
+        }
+        return handler;
+    }
+
+    /**
+     * the validators spring boot applies at startup: the configurationPropertiesValidator bean, the jsr-303 validator
+     * of a {@link Validated} bean and the bean itself when it is a validator
+     */
+    private List<Validator> getValidators(Validated validated, Object target) {
+        List<Validator> validators = new ArrayList<>(3);
+        if(applicationContext.containsBean(ConfigurationPropertiesBindingPostProcessor.VALIDATOR_BEAN_NAME)){
+            validators.add(applicationContext.getBean(ConfigurationPropertiesBindingPostProcessor.VALIDATOR_BEAN_NAME, Validator.class));
+        }
+        if(null!=validated){
+            Validator validator = getJsr303Validator();
+            if(null!=validator){
+                validators.add(validator);
+            }
+        }
+        if(target instanceof Validator){
+            validators.add((Validator) target);
+        }
+        return validators;
+    }
+
+    private Validator getJsr303Validator() {
+        Validator validator = this.jsr303Validator;
+        if(null==validator && ClassUtils.isPresent("javax.validation.Validator", getClass().getClassLoader())){
+            try{
+                // created by name, bean validation is optional
+                validator = (Validator) BeanUtils.instantiateClass(ClassUtils.forName(JSR303_VALIDATOR_CLASS, getClass().getClassLoader()));
+                ((InitializingBean) validator).afterPropertiesSet();
+                this.jsr303Validator = validator;
+            }catch (Exception e){
+                logger.warn("create jsr-303 validator Exception, @Validated beans are rebound without it: "+e.getMessage());
+                return null;
+            }
+        }
+        return validator;
+    }
+
+    private Validated findValidated(String name, Class<?> type) {
+        Validated validated = null;
+        if(applicationContext.containsBean(ConfigurationBeanFactoryMetadata.BEAN_NAME)){
+            validated = applicationContext.getBean(ConfigurationBeanFactoryMetadata.BEAN_NAME, ConfigurationBeanFactoryMetadata.class)
+                    .findFactoryAnnotation(name, Validated.class);
+        }
+        return null!=validated ? validated : AnnotationUtils.findAnnotation(type, Validated.class);
+    }
+
+    /**
+     * relaxed form of a property name, case, '-' and '_' are ignored like the binder does
+     * @param name property name
+     * @return return the canonical name
+     */
+    static String canonical(String name) {
+        StringBuilder canonical = new StringBuilder(name.length());
+        for(int i=0; i<name.length(); i++){
+            char c = name.charAt(i);
+            if(c!='-' && c!='_'){
+                canonical.append(Character.toLowerCase(c));
+            }
+        }
+        return canonical.toString();
+    }
+
+    private static class ConfigurationPropertiesBean {
+
+        private final String name;
+
+        private final ConfigurationProperties annotation;
+
+        private final String prefix;
+
+        ConfigurationPropertiesBean(String name, ConfigurationProperties annotation) {
+            this.name = name;
+            this.annotation = annotation;
+            this.prefix = canonical(annotation.prefix());
+        }
+
+        boolean isBoundTo(List<String> keys) {
+            if(prefix.isEmpty()){
+                return true;
+            }
+            for(String key:keys){
+                if(key.startsWith(prefix) && (key.length()==prefix.length() || key.charAt(prefix.length())=='.' || key.charAt(prefix.length())=='[')){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
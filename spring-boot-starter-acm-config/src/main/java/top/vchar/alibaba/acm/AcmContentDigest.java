@@ -0,0 +1,51 @@
+package top.vchar.alibaba.acm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p> SHA-256 digest of a config content </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 10:20
+ */
+public class AcmContentDigest {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private AcmContentDigest(){
+    }
+
+    /**
+     * digest of a content
+     * @param content config content
+     * @return return the raw digest bytes
+     */
+    public static byte[] digest(String content){
+        try{
+            return MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        }catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * hex digest of a content
+     * @param content config content
+     * @return return the hex digest
+     */
+    public static String of(String content){
+        return toHex(digest(content));
+    }
+
+    public static String toHex(byte[] digest){
+        char[] chars = new char[digest.length*2];
+        for(int i=0; i<digest.length; i++){
+            chars[i*2] = HEX[(digest[i] >> 4) & 0xf];
+            chars[i*2+1] = HEX[digest[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
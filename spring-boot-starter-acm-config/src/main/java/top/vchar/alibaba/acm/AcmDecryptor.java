@@ -0,0 +1,48 @@
+package top.vchar.alibaba.acm;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * <p> decrypt the {@link AcmEncryptedValue} of the acm config, set by alibaba.acm.decryptor </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 01:10
+ */
+public interface AcmDecryptor {
+
+    /**
+     * init the decryptor
+     * @param properties region id and credentials of acm: regionId, accessKey, secretKey, ramRoleName
+     */
+    void init(Properties properties);
+
+    /**
+     * decrypt a value
+     * @param ciphertext the value without {@link AcmEncryptedValue#PREFIX}
+     * @return return the plaintext
+     * @throws Exception decrypt exception
+     */
+    String decrypt(String ciphertext) throws Exception;
+
+    /**
+     * decrypt several values at once, one after another unless the decryptor does better
+     * @param ciphertexts the values without {@link AcmEncryptedValue#PREFIX}
+     * @return return the plaintext of each value, a value missing from the result could not be decrypted
+     * @throws Exception decrypt exception of the whole batch
+     */
+    default Map<String, String> decrypt(Collection<String> ciphertexts) throws Exception {
+        Map<String, String> plaintexts = new HashMap<>();
+        for(String ciphertext:ciphertexts){
+            try{
+                plaintexts.put(ciphertext, decrypt(ciphertext));
+            }catch (Exception e){
+                // left out, the value is decrypted alone when read and reports its own error
+            }
+        }
+        return plaintexts;
+    }
+}
@@ -0,0 +1,82 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p> start fetching the acm config as soon as the application starts, when alibaba.acm.early-fetch is true </p>
+ * <p> the config files are not loaded yet, so the alibaba.acm.* settings are read from application.properties and
+ * application.yml in the default locations (classpath:/, classpath:/config/, file:./, file:./config/) and from the
+ * system properties, profiles are not applied; the fetches run while logging is initialized and the environment is
+ * prepared, and {@link ACMConfigEnvironmentPostProcessor} joins them through {@link SingleFlightDiamondProxy} </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 22:30
+ */
+public class AcmEarlyFetchListener implements ApplicationListener<ApplicationStartingEvent>, Ordered {
+
+    private static final Log logger = LogFactory.getLog(AcmEarlyFetchListener.class);
+
+    private static final String[] LOCATIONS = {"classpath:/", "classpath:/config/", "file:./", "file:./config/"};
+
+    private static final String[] EXTENSIONS = {"yaml", "yml", "properties"};
+
+    private static final String ACM_PREFIX = "alibaba.acm.";
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationStartingEvent event) {
+        try{
+            new ACMConfigEnvironmentPostProcessor().prefetch(readSettings(new DefaultResourceLoader(event.getSpringApplication().getClassLoader())));
+        }catch (Exception e){
+            // the post-processor fetches the config anyway
+            logger.warn("acm early fetch Exception: "+e.getMessage());
+        }
+    }
+
+    /**
+     * @return return the alibaba.acm.* settings of the application config files, a later location overrides an earlier one
+     */
+    private Map<String, Object> readSettings(ResourceLoader resourceLoader) throws IOException {
+        Map<String, Object> settings = new HashMap<>();
+        for(String location:LOCATIONS){
+            for(String extension:EXTENSIONS){
+                Resource resource = resourceLoader.getResource(location+"application."+extension);
+                if(!resource.exists()){
+                    continue;
+                }
+                String content;
+                try(InputStream in = resource.getInputStream()){
+                    content = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+                }
+                Map<String, Object> source = AcmConfigParser.toSource("application."+extension, content);
+                if(null!=source){
+                    for(Map.Entry<String, Object> entry:source.entrySet()){
+                        if(entry.getKey().startsWith(ACM_PREFIX)){
+                            settings.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+            }
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,173 @@
+package top.vchar.alibaba.acm;
+
+import java.util.*;
+
+/**
+ * <p> a value of the acm config encrypted with kms, written as {cipher}ciphertext in any yml or properties data-id when
+ * alibaba.acm.lazy-decrypt is true </p>
+ * <p> the value of the key in the environment is this object, holding only the ciphertext: nothing is decrypted at
+ * startup. {@link org.springframework.core.env.Environment#getProperty(String)} and the binding of the beans still
+ * return the plaintext as a String, decrypted on the first read and then taken from the {@link AcmSecretCache}; the
+ * first read of a data-id decrypts its other values not decrypted yet in the same batch </p>
+ * <p> this is independent of alibaba.acm.open-kms-filter, which decrypts the whole content of the cipher- data-ids
+ * when they are fetched </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 01:10
+ */
+public final class AcmEncryptedValue {
+
+    public static final String PREFIX = "{cipher}";
+
+    /**
+     * the cache the values are wrapped with when parsed, null to keep them as they are
+     */
+    private static volatile AcmSecretCache defaultCache;
+
+    private final String ciphertext;
+
+    private final AcmSecretCache cache;
+
+    /**
+     * the ciphertexts of the values parsed together with this one
+     */
+    private final List<String> batch;
+
+    private AcmEncryptedValue(String ciphertext, AcmSecretCache cache, List<String> batch) {
+        this.ciphertext = ciphertext;
+        this.cache = cache;
+        this.batch = batch;
+    }
+
+    /**
+     * process-wide like {@link AcmMappedContent#setThreshold(int)}, the values already parsed keep their cache
+     * @param cache the cache the {cipher} values are decrypted with, null to keep them as they are
+     */
+    public static void setDefaultCache(AcmSecretCache cache) {
+        AcmEncryptedValue.defaultCache = cache;
+    }
+
+    public static AcmSecretCache getDefaultCache() {
+        return defaultCache;
+    }
+
+    /**
+     * @return return true if the {cipher} values are decrypted lazily
+     */
+    public static boolean isEnabled() {
+        return null!=defaultCache;
+    }
+
+    /**
+     * replace the {cipher} values of a parsed data-id by encrypted values decrypted together
+     * @param source parsed config, modified
+     */
+    static void wrap(Map<String, Object> source) {
+        AcmSecretCache cache = defaultCache;
+        if(null==cache){
+            return;
+        }
+        List<String> batch = new ArrayList<>();
+        for(Object value:source.values()){
+            if(isEncrypted(value)){
+                batch.add(((String) value).substring(PREFIX.length()));
+            }
+        }
+        if(batch.isEmpty()){
+            return;
+        }
+        List<String> shared = Collections.unmodifiableList(batch);
+        source.replaceAll((key, value) -> isEncrypted(value) ? new AcmEncryptedValue(((String) value).substring(PREFIX.length()), cache, shared) : value);
+    }
+
+    /**
+     * replace the {cipher} values of a data-id read from an index by encrypted values decrypted together
+     * @param values values, modified
+     */
+    static void wrap(Object[] values) {
+        AcmSecretCache cache = defaultCache;
+        if(null==cache){
+            return;
+        }
+        List<String> batch = new ArrayList<>();
+        for(Object value:values){
+            if(isEncrypted(value)){
+                batch.add(((String) value).substring(PREFIX.length()));
+            }
+        }
+        if(batch.isEmpty()){
+            return;
+        }
+        List<String> shared = Collections.unmodifiableList(batch);
+        for(int i=0; i<values.length; i++){
+            if(isEncrypted(values[i])){
+                values[i] = new AcmEncryptedValue(((String) values[i]).substring(PREFIX.length()), cache, shared);
+            }
+        }
+    }
+
+    /**
+     * wrap a {cipher} value alone; spring converts an encrypted value to a String because of this method
+     * @param value the value as written in a data-id, with the {cipher} prefix
+     * @return return the encrypted value
+     * @throws IllegalArgumentException the value has no {cipher} prefix or the values are not decrypted lazily
+     */
+    public static AcmEncryptedValue valueOf(String value) {
+        AcmSecretCache cache = defaultCache;
+        if(!isEncrypted(value) || null==cache){
+            throw new IllegalArgumentException("not a lazily decrypted "+PREFIX+" value");
+        }
+        String ciphertext = value.substring(PREFIX.length());
+        return new AcmEncryptedValue(ciphertext, cache, Collections.singletonList(ciphertext));
+    }
+
+    private static boolean isEncrypted(Object value) {
+        return value instanceof String && ((String) value).startsWith(PREFIX);
+    }
+
+    public String getCiphertext() {
+        return ciphertext;
+    }
+
+    List<String> getBatch() {
+        return batch;
+    }
+
+    /**
+     * @return return the plaintext, decrypted on the first read
+     * @throws IllegalStateException the value can not be decrypted
+     */
+    public String getPlaintext() {
+        return cache.get(this);
+    }
+
+    /**
+     * @return return the value as written in the data-id, with the {cipher} prefix
+     */
+    public String getRawValue() {
+        return PREFIX+ciphertext;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this==o){
+            return true;
+        }
+        return o instanceof AcmEncryptedValue && ciphertext.equals(((AcmEncryptedValue) o).ciphertext);
+    }
+
+    @Override
+    public int hashCode() {
+        return ciphertext.hashCode();
+    }
+
+    /**
+     * spring converts an encrypted value to a String because of this method
+     * @return return the plaintext
+     */
+    @Override
+    public String toString() {
+        return getPlaintext();
+    }
+}
@@ -0,0 +1,326 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.*;
+
+/**
+ * <p> feature flags and percentage rollouts defined in one data-id, set by alibaba.acm.feature-flag-data-id, each flag
+ * by its name followed by: </p>
+ * <pre>
+ * new-checkout.enabled=true              # off for everyone when false, default true
+ * new-checkout.percentage=12.5           # share of the ids the flag is on for, 0 to 100 by 0.01, default 100
+ * new-checkout.buckets=0-999,5000-5499   # or the buckets of 0 to 9999 the flag is on for, instead of the percentage
+ * new-checkout.allow-users=u1,u2         # always on for these users or tenants
+ * new-checkout.allow-tenants=t1
+ * new-checkout.deny-users=u3             # always off for these users or tenants, before the allow lists
+ * new-checkout.deny-tenants=t2
+ * new-checkout.salt=checkout-2026        # the ids are bucketed by the hash of the salt and the id, default the flag name
+ * </pre>
+ * <p> the rules are compiled into an immutable structure: the bucket ranges of each flag sorted and merged, the allow and
+ * deny lists into hash sets and the salt into the initial hash; evaluating a flag reads a volatile field, looks up the
+ * flag and hashes the id without a lock or an allocation. When the data-id is refreshed the rules are compiled again and
+ * swapped at once, rules that can not be compiled keep the previous ones </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 23:50
+ */
+public class AcmFeatureFlags implements AcmConfigRefreshListener {
+
+    private static final Log logger = LogFactory.getLog(AcmFeatureFlags.class);
+
+    /**
+     * the ids are hashed into this number of buckets, a percentage is precise to 0.01
+     */
+    public static final int BUCKETS = 10000;
+
+    private final AcmConfigRepository repository;
+
+    private final String dataId;
+
+    private volatile Map<String, Flag> flags = Collections.emptyMap();
+
+    /**
+     * @param repository the loaded acm config
+     * @param dataId the data-id the rules are defined in, one of the loaded data-ids
+     */
+    public AcmFeatureFlags(AcmConfigRepository repository, String dataId) {
+        this.repository = repository;
+        this.dataId = dataId;
+        if(!repository.getDataIds().contains(dataId)){
+            logger.warn(dataId+" is not loaded, add it to alibaba.acm.data-id-list to define the feature flags");
+        }
+        load(repository.getSource(dataId));
+    }
+
+    public String getDataId() {
+        return dataId;
+    }
+
+    @Override
+    public void onRefresh(AcmConfigChangeEvent event) {
+        if(event.getDataIds().contains(dataId)){
+            load(repository.getSource(dataId));
+        }
+    }
+
+    /**
+     * compile the rules and swap them in, the current rules are kept if they can not be compiled
+     * @param source the config of the data-id
+     * @return return true if the rules were swapped
+     */
+    public boolean load(Map<String, Object> source) {
+        try{
+            Map<String, Flag> flags = compile(null==source ? Collections.emptyMap() : source);
+            this.flags = flags;
+            logger.info(dataId+" feature flags loaded: "+flags.keySet());
+            return true;
+        }catch (IllegalArgumentException e){
+            logger.error(dataId+" compile feature flags Exception, keep the current flags: "+e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param flag flag name
+     * @return return whether the flag is on for everyone: enabled with a rollout of every bucket; false if not defined
+     */
+    public boolean isEnabled(String flag) {
+        return isEnabled(flag, null, null);
+    }
+
+    /**
+     * @param flag flag name
+     * @param userId user id
+     * @return return whether the flag is on for the user, false if not defined
+     */
+    public boolean isEnabled(String flag, String userId) {
+        return isEnabled(flag, userId, null);
+    }
+
+    /**
+     * @param flag flag name
+     * @param userId user id, may be null
+     * @param tenantId tenant id, may be null; the user is bucketed, the tenant when there is no user
+     * @return return whether the flag is on for the user of the tenant, false if not defined
+     */
+    public boolean isEnabled(String flag, String userId, String tenantId) {
+        Flag rule = flags.get(flag);
+        return null!=rule && rule.evaluate(userId, tenantId);
+    }
+
+    /**
+     * @param flag flag name
+     * @param id user or tenant id
+     * @return return the bucket of the id for the flag, 0 to {@link #BUCKETS} - 1, -1 if the flag is not defined
+     */
+    public int bucket(String flag, String id) {
+        Flag rule = flags.get(flag);
+        return null==rule ? -1 : bucket(rule.seed, id);
+    }
+
+    /**
+     * @return return the names of the defined flags
+     */
+    public Set<String> getFlags() {
+        return flags.keySet();
+    }
+
+    static Map<String, Flag> compile(Map<String, Object> source) {
+        Map<String, Map<String, List<String>>> definitions = new TreeMap<>();
+        for(Map.Entry<String, Object> entry:source.entrySet()){
+            String key = entry.getKey();
+            // a yml list is flattened into name[0], name[1]...
+            int index = key.endsWith("]") ? key.lastIndexOf('[') : -1;
+            String name = index>0 ? key.substring(0, index) : key;
+            int dot = name.lastIndexOf('.');
+            if(dot<=0 || null==entry.getValue()){
+                continue;
+            }
+            List<String> values = definitions.computeIfAbsent(name.substring(0, dot), k -> new HashMap<>())
+                    .computeIfAbsent(name.substring(dot+1), k -> new ArrayList<>());
+            for(String value:entry.getValue().toString().split(",")){
+                if(value.trim().length()>0){
+                    values.add(value.trim());
+                }
+            }
+        }
+        Map<String, Flag> flags = new HashMap<>();
+        for(Map.Entry<String, Map<String, List<String>>> entry:definitions.entrySet()){
+            try{
+                flags.put(entry.getKey(), new Flag(entry.getKey(), entry.getValue()));
+            }catch (IllegalArgumentException e){
+                throw new IllegalArgumentException("flag "+entry.getKey()+": "+e.getMessage(), e);
+            }
+        }
+        return Collections.unmodifiableMap(flags);
+    }
+
+    /**
+     * murmur3 of the chars of the id from the seed, reduced to a bucket
+     */
+    static int bucket(int seed, String id) {
+        int hash = mix(seed, id);
+        hash ^= id.length();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Integer.remainderUnsigned(hash, BUCKETS);
+    }
+
+    private static int mix(int hash, String value) {
+        for(int i=0; i<value.length(); i++){
+            int k = value.charAt(i) * 0xcc9e2d51;
+            k = Integer.rotateLeft(k, 15) * 0x1b873593;
+            hash = Integer.rotateLeft(hash ^ k, 13) * 5 + 0xe6546b64;
+        }
+        return hash;
+    }
+
+    /**
+     * the compiled rule of a flag
+     */
+    static final class Flag {
+
+        private static final Set<String> ATTRIBUTES = new HashSet<>(Arrays.asList("enabled", "percentage", "buckets",
+                "allow-users", "allow-tenants", "deny-users", "deny-tenants", "salt"));
+
+        private final boolean enabled;
+
+        /**
+         * the bucket ranges the flag is on for, sorted and merged: from inclusive, to exclusive
+         */
+        private final int[] ranges;
+
+        private final boolean everyone;
+
+        private final Set<String> allowUsers;
+
+        private final Set<String> allowTenants;
+
+        private final Set<String> denyUsers;
+
+        private final Set<String> denyTenants;
+
+        private final int seed;
+
+        Flag(String name, Map<String, List<String>> attributes) {
+            for(String attribute:attributes.keySet()){
+                if(!ATTRIBUTES.contains(attribute)){
+                    throw new IllegalArgumentException("unknown attribute "+attribute);
+                }
+            }
+            String enabled = single(attributes, "enabled");
+            this.enabled = null==enabled || Boolean.parseBoolean(enabled);
+            List<int[]> ranges = new ArrayList<>();
+            String percentage = single(attributes, "percentage");
+            if(null!=percentage){
+                if(attributes.containsKey("buckets")){
+                    throw new IllegalArgumentException("set either percentage or buckets");
+                }
+                double value = Double.parseDouble(percentage);
+                if(!(value>=0 && value<=100)){
+                    throw new IllegalArgumentException("percentage "+percentage+" is not between 0 and 100");
+                }
+                ranges.add(new int[]{0, (int) Math.round(value*BUCKETS/100)});
+            }else if(attributes.containsKey("buckets")){
+                for(String range:attributes.get("buckets")){
+                    ranges.add(parseRange(range));
+                }
+            }else {
+                ranges.add(new int[]{0, BUCKETS});
+            }
+            this.ranges = merge(ranges);
+            this.everyone = this.ranges.length==2 && this.ranges[0]==0 && this.ranges[1]==BUCKETS;
+            this.allowUsers = toSet(attributes.get("allow-users"));
+            this.allowTenants = toSet(attributes.get("allow-tenants"));
+            this.denyUsers = toSet(attributes.get("deny-users"));
+            this.denyTenants = toSet(attributes.get("deny-tenants"));
+            String salt = single(attributes, "salt");
+            this.seed = mix(0, null==salt ? name : salt);
+        }
+
+        boolean evaluate(String userId, String tenantId) {
+            if(!enabled){
+                return false;
+            }
+            if(null!=userId && denyUsers.contains(userId) || null!=tenantId && denyTenants.contains(tenantId)){
+                return false;
+            }
+            if(null!=userId && allowUsers.contains(userId) || null!=tenantId && allowTenants.contains(tenantId)){
+                return true;
+            }
+            if(everyone){
+                return true;
+            }
+            String id = null!=userId ? userId : tenantId;
+            if(null==id){
+                return false;
+            }
+            int bucket = bucket(seed, id);
+            for(int i=0; i<ranges.length; i+=2){
+                if(bucket<ranges[i]){
+                    return false;
+                }
+                if(bucket<ranges[i+1]){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String single(Map<String, List<String>> attributes, String attribute) {
+            List<String> values = attributes.get(attribute);
+            if(null==values || values.isEmpty()){
+                return null;
+            }
+            if(values.size()>1){
+                throw new IllegalArgumentException(attribute+" has more than one value");
+            }
+            return values.get(0);
+        }
+
+        /**
+         * @param range from-to of 0 to 9999, both inclusive, or a single bucket
+         */
+        private static int[] parseRange(String range) {
+            int dash = range.indexOf('-');
+            int from = Integer.parseInt((dash<0 ? range : range.substring(0, dash)).trim());
+            int to = dash<0 ? from : Integer.parseInt(range.substring(dash+1).trim());
+            if(from<0 || to>=BUCKETS || from>to){
+                throw new IllegalArgumentException("buckets "+range+" is not within 0-"+(BUCKETS-1));
+            }
+            return new int[]{from, to+1};
+        }
+
+        private static int[] merge(List<int[]> ranges) {
+            ranges.sort(Comparator.comparingInt(range -> range[0]));
+            List<int[]> merged = new ArrayList<>();
+            for(int[] range:ranges){
+                if(range[0]>=range[1]){
+                    continue;
+                }
+                int[] last = merged.isEmpty() ? null : merged.get(merged.size()-1);
+                if(null!=last && range[0]<=last[1]){
+                    last[1] = Math.max(last[1], range[1]);
+                }else {
+                    merged.add(range);
+                }
+            }
+            int[] bounds = new int[merged.size()*2];
+            for(int i=0; i<merged.size(); i++){
+                bounds[i*2] = merged.get(i)[0];
+                bounds[i*2+1] = merged.get(i)[1];
+            }
+            return bounds;
+        }
+
+        private static Set<String> toSet(List<String> values) {
+            return null==values || values.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(values));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package top.vchar.alibaba.acm;
+
+import java.util.function.IntSupplier;
+
+/**
+ * <p> the int value of a key, reading it is a single field load without boxing </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 23:20
+ */
+public final class AcmIntHandle extends AbstractAcmHandle implements IntSupplier {
+
+    private final int defaultValue;
+
+    private volatile int value;
+
+    AcmIntHandle(String key, int defaultValue) {
+        super(key);
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * @return return the current value, the default value if the key is missing
+     */
+    public int get() {
+        return value;
+    }
+
+    @Override
+    public int getAsInt() {
+        return value;
+    }
+
+    @Override
+    Class<?> getType() {
+        return Integer.class;
+    }
+
+    @Override
+    void set(Object value) {
+        this.value = null==value ? defaultValue : (Integer) value;
+    }
+
+    @Override
+    public String toString() {
+        return getKey()+"="+value;
+    }
+}
@@ -0,0 +1,109 @@
+package top.vchar.alibaba.acm;
+
+import com.alibaba.acm.shaded.com.aliyuncs.DefaultAcsClient;
+import com.alibaba.acm.shaded.com.aliyuncs.auth.InstanceProfileCredentialsProvider;
+import com.alibaba.acm.shaded.com.aliyuncs.http.FormatType;
+import com.alibaba.acm.shaded.com.aliyuncs.http.MethodType;
+import com.alibaba.acm.shaded.com.aliyuncs.http.ProtocolType;
+import com.alibaba.acm.shaded.com.aliyuncs.kms.model.v20160120.DecryptRequest;
+import com.alibaba.acm.shaded.com.aliyuncs.kms.model.v20160120.DecryptResponse;
+import com.alibaba.acm.shaded.com.aliyuncs.profile.DefaultProfile;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p> decrypt a value encrypted by the Encrypt api of aliyun kms, with the client of the acm sdk and the same credentials
+ * as the kms filter of acm: the ram role if set, the access key otherwise </p>
+ * <p> kms has no batch api, the values of a batch are decrypted concurrently so a batch takes about one round trip </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 01:10
+ */
+public class AcmKmsDecryptor implements AcmDecryptor {
+
+    private static final Log logger = LogFactory.getLog(AcmKmsDecryptor.class);
+
+    /**
+     * max number of decrypt requests of a batch in flight
+     */
+    private static final int CONCURRENCY = 8;
+
+    private volatile DefaultAcsClient client;
+
+    private Properties properties;
+
+    private ExecutorService executor;
+
+    @Override
+    public void init(Properties properties) {
+        if(StringUtils.isEmpty(properties.getProperty("regionId"))){
+            throw new IllegalArgumentException("alibaba.acm.region-id is required to decrypt with kms");
+        }
+        this.properties = properties;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("acm-kms-decrypt-");
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(CONCURRENCY, CONCURRENCY, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    @Override
+    public String decrypt(String ciphertext) throws Exception {
+        DecryptRequest request = new DecryptRequest();
+        request.setProtocol(ProtocolType.HTTPS);
+        request.setAcceptFormat(FormatType.JSON);
+        request.setMethod(MethodType.POST);
+        request.setCiphertextBlob(ciphertext);
+        DecryptResponse response = client().getAcsResponse(request);
+        return response.getPlaintext();
+    }
+
+    @Override
+    public Map<String, String> decrypt(Collection<String> ciphertexts) throws Exception {
+        if(ciphertexts.size()<2){
+            return AcmDecryptor.super.decrypt(ciphertexts);
+        }
+        Map<String, Future<String>> futures = new LinkedHashMap<>();
+        for(String ciphertext:ciphertexts){
+            futures.put(ciphertext, executor.submit(() -> decrypt(ciphertext)));
+        }
+        Map<String, String> plaintexts = new HashMap<>();
+        for(Map.Entry<String, Future<String>> entry:futures.entrySet()){
+            try{
+                plaintexts.put(entry.getKey(), entry.getValue().get());
+            }catch (ExecutionException e){
+                logger.warn("decrypt acm config value with kms Exception: "+e.getCause().getMessage());
+            }
+        }
+        return plaintexts;
+    }
+
+    /**
+     * created on the first decryption, not at startup
+     */
+    private DefaultAcsClient client() {
+        DefaultAcsClient client = this.client;
+        if(null==client){
+            synchronized (this){
+                client = this.client;
+                if(null==client){
+                    String regionId = properties.getProperty("regionId");
+                    String ramRoleName = properties.getProperty("ramRoleName");
+                    if(!StringUtils.isEmpty(ramRoleName)){
+                        client = new DefaultAcsClient(DefaultProfile.getProfile(regionId), new InstanceProfileCredentialsProvider(ramRoleName));
+                    }else {
+                        client = new DefaultAcsClient(DefaultProfile.getProfile(regionId, properties.getProperty("accessKey"), properties.getProperty("secretKey")));
+                    }
+                    this.client = client;
+                }
+            }
+        }
+        return client;
+    }
+}
@@ -0,0 +1,193 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p> load the lazy data-ids in the background once the application is ready, the startup does not wait for them </p>
+ * <p> the keys a lazy data-id had in its last local snapshot are known up front, reading one of them before the data-id
+ * arrived loads that data-id at once and waits for it, up to the time out; the other keys are not waited for </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 18:10
+ */
+public class AcmLazyDataIdLoader implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Log logger = LogFactory.getLog(AcmLazyDataIdLoader.class);
+
+    static final String LAZY_PROPERTY_SOURCE_NAME = "alibaba.acm.lazy";
+
+    private final AcmConfigRepository repository;
+
+    private final DiamondProxy diamondProxy;
+
+    private final AcmSnapshotStore snapshotStore;
+
+    private final int timeOut;
+
+    private final List<String> dataIds;
+
+    /**
+     * the data-id each known key of a pending data-id belongs to
+     */
+    private final Map<String, String> pendingKeys = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<Void>> futures = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+
+    /**
+     * @param repository acm config repository, the lazy data-ids are already part of it with an empty config
+     * @param diamondProxy diamond proxy
+     * @param snapshotStore local snapshots giving the keys of each lazy data-id, null if disabled
+     * @param timeOut time out ms of a fetch and of a read waiting for a data-id
+     * @param dataIds lazy data-ids
+     */
+    public AcmLazyDataIdLoader(AcmConfigRepository repository, DiamondProxy diamondProxy, AcmSnapshotStore snapshotStore,
+                               int timeOut, List<String> dataIds) {
+        this.repository = repository;
+        this.diamondProxy = diamondProxy;
+        this.snapshotStore = snapshotStore;
+        this.timeOut = timeOut;
+        this.dataIds = dataIds;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("acm-lazy-load-");
+        threadFactory.setDaemon(true);
+        // one thread per data-id being loaded, so a read waiting for a data-id never queues behind another one
+        this.executor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    /**
+     * register the keys of the lazy data-ids, read from their snapshots, after the acm config in the environment
+     * @param environment environment, the acm config must be installed
+     */
+    public void install(ConfigurableEnvironment environment) {
+        if(null!=snapshotStore){
+            for(String dataId:dataIds){
+                AcmSnapshotStore.AcmSnapshot snapshot = snapshotStore.load(repository.getNamespace(), repository.getGroup(), dataId);
+                if(null==snapshot){
+                    continue;
+                }
+                try{
+                    Map<String, Object> source = AcmConfigParser.toSource(dataId, snapshot.getContent());
+                    if(null!=source){
+                        for(String key:source.keySet()){
+                            pendingKeys.putIfAbsent(key, dataId);
+                        }
+                    }
+                }catch (IOException e){
+                    logger.warn(dataId+" parse local snapshot Exception: "+e.getMessage());
+                }
+            }
+        }
+        MutablePropertySources propertySources = environment.getPropertySources();
+        if(!pendingKeys.isEmpty() && propertySources.contains(ACMConfigEnvironmentPostProcessor.ACM_PROPERTY_SOURCE_NAME)){
+            propertySources.addAfter(ACMConfigEnvironmentPostProcessor.ACM_PROPERTY_SOURCE_NAME, new LazyPropertySource());
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        logger.info("start load lazy acm config: "+String.join(",", dataIds));
+        for(String dataId:dataIds){
+            load(dataId);
+        }
+    }
+
+    /**
+     * load a lazy data-id, once
+     * @param dataId dataId
+     * @return return the load of the data-id
+     */
+    public CompletableFuture<Void> load(String dataId) {
+        return futures.computeIfAbsent(dataId, id -> {
+            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> fetch(id), executor);
+            future.whenComplete((v, e) -> loaded(id));
+            return future;
+        });
+    }
+
+    private void fetch(String dataId) {
+        AcmConfigStats.DataIdStats dataIdStats = repository.getStats().get(dataId);
+        String content;
+        long start = System.nanoTime();
+        try{
+            content = diamondProxy.getConfig(dataId, repository.getGroup(), timeOut);
+            dataIdStats.outcome(AcmConfigStats.Outcome.SUCCESS);
+        }catch (Exception e){
+            AcmSnapshotStore.AcmSnapshot snapshot = null==snapshotStore ? null : snapshotStore.load(repository.getNamespace(), repository.getGroup(), dataId);
+            if(null==snapshot){
+                dataIdStats.outcome(AcmConfigStats.Outcome.FAILED);
+                logger.error(dataId+" load lazy acm config Exception: "+e.getMessage(), e);
+                return;
+            }
+            logger.warn(dataId+" load lazy acm config Exception: "+e.getMessage()+", use local snapshot");
+            dataIdStats.outcome(AcmConfigStats.Outcome.FALLBACK);
+            content = snapshot.getContent();
+        }
+        dataIdStats.fetched(System.nanoTime()-start, content);
+        if(!StringUtils.isEmpty(content)){
+            repository.refresh(dataId, content);
+        }
+        logger.info(dataId+" lazy acm config loaded");
+    }
+
+    private void loaded(String dataId) {
+        pendingKeys.values().removeIf(dataId::equals);
+        if(pendingKeys.isEmpty()){
+            repository.getEnvironment().getPropertySources().remove(LAZY_PROPERTY_SOURCE_NAME);
+        }
+    }
+
+    /**
+     * wait for the data-id of a key if it is still pending
+     * @param name property name
+     * @return return true if the key belonged to a pending data-id
+     */
+    private boolean await(String name) {
+        String dataId = pendingKeys.get(name);
+        if(null==dataId || Thread.currentThread().getName().startsWith("acm-lazy-load-")){
+            // the loading thread reads the environment while it applies the data-id, it must not wait for itself
+            return false;
+        }
+        try{
+            load(dataId).get(timeOut, TimeUnit.MILLISECONDS);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }catch (TimeoutException e){
+            logger.warn(name+" is not available yet, lazy acm config "+dataId+" is still loading");
+        }catch (ExecutionException e){
+            logger.warn(name+" lazy acm config "+dataId+" Exception: "+e.getCause().getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * answers the keys of the pending lazy data-ids with the acm config, after waiting for their data-id
+     */
+    private class LazyPropertySource extends PropertySource<Map<String, String>> {
+
+        LazyPropertySource() {
+            super(LAZY_PROPERTY_SOURCE_NAME, pendingKeys);
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            if(!pendingKeys.containsKey(name) || !await(name)){
+                return null;
+            }
+            return repository.getProperty(name);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p> apply the changes of spring.redis.lettuce.pool.* pushed by acm to the live pools of every {@link LettuceConnectionFactory},
+ * no restart needed: max-active, max-idle, min-idle and max-wait </p>
+ * <p> a pool raising its min-idle is filled in the background, so the new connections are ready before the traffic needs them;
+ * a pool shrinking closes its extra connections as they are returned </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 20:05
+ */
+public class AcmLettucePoolResizer implements AcmConfigRefreshListener, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(AcmLettucePoolResizer.class);
+
+    static final String POOL_PREFIX = "spring.redis.lettuce.pool";
+
+    private static final String CANONICAL_POOL_PREFIX = AcmConfigurationPropertiesRebinder.canonical(POOL_PREFIX+".");
+
+    /**
+     * the connection provider of the factory, a LettucePoolingConnectionProvider keeps one pool per connection type
+     */
+    private static final Field CONNECTION_PROVIDER = ReflectionUtils.findField(LettuceConnectionFactory.class, "connectionProvider");
+
+    private final ConfigurableEnvironment environment;
+
+    private final ObjectProvider<LettuceConnectionFactory> connectionFactories;
+
+    private final ExecutorService executor;
+
+    public AcmLettucePoolResizer(ConfigurableEnvironment environment, ObjectProvider<LettuceConnectionFactory> connectionFactories) {
+        this.environment = environment;
+        this.connectionFactories = connectionFactories;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("acm-redis-pool-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    @Override
+    public void onRefresh(AcmConfigChangeEvent event) {
+        for(String key:event.getChangedKeys()){
+            if(AcmConfigurationPropertiesRebinder.canonical(key).startsWith(CANONICAL_POOL_PREFIX)){
+                resize();
+                return;
+            }
+        }
+    }
+
+    /**
+     * apply the current spring.redis.lettuce.pool.* to every pooling connection factory
+     */
+    public void resize() {
+        RedisProperties.Pool pool = Binder.get(environment).bind(POOL_PREFIX, RedisProperties.Pool.class).orElseGet(RedisProperties.Pool::new);
+        connectionFactories.orderedStream().forEach(connectionFactory -> resize(connectionFactory, pool));
+    }
+
+    private void resize(LettuceConnectionFactory connectionFactory, RedisProperties.Pool pool) {
+        LettuceClientConfiguration clientConfiguration = connectionFactory.getClientConfiguration();
+        if(!(clientConfiguration instanceof LettucePoolingClientConfiguration)){
+            return;
+        }
+        // the config the pools created later are made with
+        apply(((LettucePoolingClientConfiguration) clientConfiguration).getPoolConfig(), pool);
+        List<GenericObjectPool<?>> pools = getPools(connectionFactory);
+        for(GenericObjectPool<?> objectPool:pools){
+            int minIdle = objectPool.getMinIdle();
+            objectPool.setMaxTotal(pool.getMaxActive());
+            objectPool.setMaxIdle(pool.getMaxIdle());
+            objectPool.setMinIdle(pool.getMinIdle());
+            objectPool.setMaxWaitMillis(maxWait(pool.getMaxWait()));
+            if(objectPool.getMinIdle()>minIdle){
+                executor.execute(() -> prepare(objectPool));
+            }
+        }
+        logger.info("redis pool resized to max-active "+pool.getMaxActive()+", max-idle "+pool.getMaxIdle()
+                +", min-idle "+pool.getMinIdle()+", max-wait "+maxWait(pool.getMaxWait())+"ms, live pools: "+pools.size());
+    }
+
+    private static void apply(GenericObjectPoolConfig<?> config, RedisProperties.Pool pool) {
+        config.setMaxTotal(pool.getMaxActive());
+        config.setMaxIdle(pool.getMaxIdle());
+        config.setMinIdle(pool.getMinIdle());
+        config.setMaxWaitMillis(maxWait(pool.getMaxWait()));
+    }
+
+    private static long maxWait(Duration maxWait) {
+        return null==maxWait ? -1 : maxWait.toMillis();
+    }
+
+    private static void prepare(GenericObjectPool<?> objectPool) {
+        try{
+            objectPool.preparePool();
+        }catch (Exception e){
+            logger.warn("fill redis pool to min-idle "+objectPool.getMinIdle()+" Exception: "+e.getMessage());
+        }
+    }
+
+    /**
+     * the live pools of the factory, kept in private fields by spring data redis
+     */
+    private static List<GenericObjectPool<?>> getPools(LettuceConnectionFactory connectionFactory) {
+        List<GenericObjectPool<?>> pools = new ArrayList<>();
+        if(null==CONNECTION_PROVIDER){
+            return pools;
+        }
+        ReflectionUtils.makeAccessible(CONNECTION_PROVIDER);
+        Object connectionProvider = ReflectionUtils.getField(CONNECTION_PROVIDER, connectionFactory);
+        if(null==connectionProvider){
+            return pools;
+        }
+        Field field = ReflectionUtils.findField(connectionProvider.getClass(), "pools", Map.class);
+        if(null==field){
+            return pools;
+        }
+        ReflectionUtils.makeAccessible(field);
+        Map<?, ?> map = (Map<?, ?>) ReflectionUtils.getField(field, connectionProvider);
+        if(null!=map){
+            for(Object value:new ArrayList<>(map.values())){
+                if(value instanceof GenericObjectPool){
+                    pools.add((GenericObjectPool<?>) value);
+                }
+            }
+        }
+        return pools;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,314 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * <p> run the callbacks of the config changes on a pool of its own instead of the thread of acm or of the refresh: the
+ * rebind and the {@link AcmConfigChangeEvent} listeners </p>
+ * <p> the changes of each data-id are queued in a mailbox of their own and called back in order, one at a time, so a slow
+ * listener of a data-id holds one thread at most and never delays the refresh nor the callbacks of another data-id;
+ * a change of several data-ids applied at once is queued in the mailbox of each of them and called back once it is
+ * the first of all of them, so it is ordered with the changes of every data-id it holds. A mailbox is removed once
+ * empty </p>
+ * <p> a mailbox keeps at most the queue capacity of changes waiting, when it is full the oldest change is dropped and its
+ * keys are merged into the new one, so no changed key is missed </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 00:50
+ */
+public class AcmListenerDispatcher implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(AcmListenerDispatcher.class);
+
+    /**
+     * a callback taking longer is logged
+     */
+    private static final long SLOW_CALLBACK = TimeUnit.SECONDS.toNanos(1);
+
+    private final int queueCapacity;
+
+    private final ExecutorService executor;
+
+    /**
+     * the changes of each data-id in the order they were dispatched, the first one may be running; guarded by this
+     */
+    private final Map<String, Deque<Pending>> mailboxes = new HashMap<>();
+
+    private final AtomicLong queued = new AtomicLong();
+
+    private final AtomicLong active = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong callbackCount = new AtomicLong();
+
+    private final AtomicLong callbackTime = new AtomicLong();
+
+    private final AtomicLong waitTime = new AtomicLong();
+
+    private volatile long maxCallbackTime;
+
+    /**
+     * @param threads number of threads running the callbacks, at least 1
+     * @param queueCapacity number of changes each data-id queues, at least 1
+     */
+    public AcmListenerDispatcher(int threads, int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("acm-listener-");
+        threadFactory.setDaemon(true);
+        int size = Math.max(1, threads);
+        // the queue holds one drain task per busy mailbox, so it is bounded by the number of data-ids
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    /**
+     * queue the change in the mailbox of each of its data-ids
+     * @param event the change
+     * @param callback called with the change, or with the change merged with the older ones dropped
+     */
+    public void dispatch(AcmConfigChangeEvent event, Consumer<AcmConfigChangeEvent> callback) {
+        List<Pending> ready = new ArrayList<>();
+        synchronized (this){
+            long queuedAt = System.nanoTime();
+            Set<String> affected = new LinkedHashSet<>();
+            for(String dataId:dataIdsOf(event)){
+                Deque<Pending> mailbox = mailboxes.get(dataId);
+                if(null==mailbox || waiting(mailbox)<queueCapacity){
+                    continue;
+                }
+                Pending oldest = removeOldest(mailbox, callback);
+                remove(oldest, affected);
+                if(oldest.callback==callback){
+                    event = AcmConfigChangeEvent.merge(oldest.event, event);
+                    queuedAt = oldest.queuedAt;
+                }
+                queued.decrementAndGet();
+                dropped.incrementAndGet();
+                logger.warn(dataId+" acm config listeners are behind, merge the oldest change into the new one");
+            }
+            Pending item = new Pending(event, callback, queuedAt, dataIdsOf(event));
+            for(String dataId:item.dataIds){
+                mailboxes.computeIfAbsent(dataId, k -> new ArrayDeque<>()).addLast(item);
+            }
+            queued.incrementAndGet();
+            affected.addAll(item.dataIds);
+            collectReady(affected, ready);
+        }
+        execute(ready);
+    }
+
+    private static List<String> dataIdsOf(AcmConfigChangeEvent event) {
+        return event.getDataIds().isEmpty() ? Collections.singletonList("") : new ArrayList<>(new LinkedHashSet<>(event.getDataIds()));
+    }
+
+    /**
+     * @return return the number of changes of the mailbox not running yet
+     */
+    private static int waiting(Deque<Pending> mailbox) {
+        return mailbox.size()-(mailbox.getFirst().running ? 1 : 0);
+    }
+
+    /**
+     * the oldest change waiting with the same callback, it can be merged; the oldest waiting otherwise
+     */
+    private static Pending removeOldest(Deque<Pending> mailbox, Consumer<AcmConfigChangeEvent> callback) {
+        Pending oldest = null;
+        for(Pending item:mailbox){
+            if(item.running){
+                continue;
+            }
+            if(item.callback==callback){
+                return item;
+            }
+            if(null==oldest){
+                oldest = item;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * remove a change from the mailboxes of its data-ids, the empty mailboxes are removed
+     */
+    private void remove(Pending item, Set<String> affected) {
+        for(String dataId:item.dataIds){
+            Deque<Pending> mailbox = mailboxes.get(dataId);
+            if(null!=mailbox && mailbox.remove(item)){
+                affected.add(dataId);
+                if(mailbox.isEmpty()){
+                    mailboxes.remove(dataId);
+                }
+            }
+        }
+    }
+
+    /**
+     * mark as running the changes first of the mailboxes of all their data-ids
+     */
+    private void collectReady(Set<String> dataIds, List<Pending> ready) {
+        for(String dataId:dataIds){
+            Deque<Pending> mailbox = mailboxes.get(dataId);
+            if(null==mailbox){
+                continue;
+            }
+            Pending first = mailbox.getFirst();
+            if(!first.running && isFirst(first)){
+                first.running = true;
+                queued.decrementAndGet();
+                ready.add(first);
+            }
+        }
+    }
+
+    private boolean isFirst(Pending item) {
+        for(String dataId:item.dataIds){
+            if(mailboxes.get(dataId).getFirst()!=item){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void execute(List<Pending> ready) {
+        for(Pending item:ready){
+            try{
+                executor.execute(() -> run(item));
+            }catch (RejectedExecutionException e){
+                logger.warn(item.key()+" acm config change is not called back, the dispatcher is closed");
+                synchronized (this){
+                    queued.addAndGet(-mailboxes.values().stream().mapToLong(AcmListenerDispatcher::waiting).sum());
+                    mailboxes.clear();
+                }
+                return;
+            }
+        }
+    }
+
+    private void run(Pending item) {
+        active.incrementAndGet();
+        try{
+            long start = System.nanoTime();
+            waitTime.addAndGet(start-item.queuedAt);
+            try{
+                item.callback.accept(item.event);
+            }catch (Exception e){
+                logger.error(item.key()+" acm config change callback Exception: "+e.getMessage(), e);
+            }
+            long nanos = System.nanoTime()-start;
+            callbackCount.incrementAndGet();
+            callbackTime.addAndGet(nanos);
+            if(nanos>maxCallbackTime){
+                maxCallbackTime = nanos;
+            }
+            if(nanos>SLOW_CALLBACK){
+                logger.warn(item.key()+" acm config change callback took "+TimeUnit.NANOSECONDS.toMillis(nanos)+"ms");
+            }
+        }finally {
+            active.decrementAndGet();
+            List<Pending> ready = new ArrayList<>();
+            synchronized (this){
+                Set<String> affected = new LinkedHashSet<>();
+                remove(item, affected);
+                collectReady(affected, ready);
+            }
+            execute(ready);
+        }
+    }
+
+    /**
+     * @return return the number of changes waiting in every mailbox
+     */
+    public long getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return return the number of changes being called back
+     */
+    public long getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return return the number of changes merged into a later one because their mailbox was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return return the number of callbacks run
+     */
+    public long getCallbackCount() {
+        return callbackCount.get();
+    }
+
+    /**
+     * @return return the total time of the callbacks in ms
+     */
+    public double getCallbackTime() {
+        return callbackTime.get()/1e6;
+    }
+
+    /**
+     * @return return the longest callback in ms
+     */
+    public double getMaxCallbackTime() {
+        return maxCallbackTime/1e6;
+    }
+
+    /**
+     * @return return the total time the changes waited in their mailbox in ms
+     */
+    public double getWaitTime() {
+        return waitTime.get()/1e6;
+    }
+
+    /**
+     * @return return the number of data-ids with changes queued or running
+     */
+    synchronized int getMailboxCount() {
+        return mailboxes.size();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static final class Pending {
+
+        private final AcmConfigChangeEvent event;
+
+        private final Consumer<AcmConfigChangeEvent> callback;
+
+        private final long queuedAt;
+
+        private final List<String> dataIds;
+
+        /**
+         * submitted to the executor, guarded by the dispatcher
+         */
+        private boolean running;
+
+        Pending(AcmConfigChangeEvent event, Consumer<AcmConfigChangeEvent> callback, long queuedAt, List<String> dataIds) {
+            this.event = event;
+            this.callback = callback;
+            this.queuedAt = queuedAt;
+            this.dataIds = dataIds;
+        }
+
+        String key() {
+            return String.join(",", dataIds);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package top.vchar.alibaba.acm;
+
+import java.util.function.LongSupplier;
+
+/**
+ * <p> the long value of a key, reading it is a single field load without boxing </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 23:20
+ */
+public final class AcmLongHandle extends AbstractAcmHandle implements LongSupplier {
+
+    private final long defaultValue;
+
+    private volatile long value;
+
+    AcmLongHandle(String key, long defaultValue) {
+        super(key);
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * @return return the current value, the default value if the key is missing
+     */
+    public long get() {
+        return value;
+    }
+
+    @Override
+    public long getAsLong() {
+        return value;
+    }
+
+    @Override
+    Class<?> getType() {
+        return Long.class;
+    }
+
+    @Override
+    void set(Object value) {
+        this.value = null==value ? defaultValue : (Long) value;
+    }
+
+    @Override
+    public String toString() {
+        return getKey()+"="+value;
+    }
+}
@@ -0,0 +1,282 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p> the content of a large data-id that is not yml or properties, such as a json rule set, kept off the heap in a
+ * memory-mapped file instead of a String </p>
+ * <p> the value of the data-id in the environment is this object: {@link org.springframework.core.env.Environment#getProperty(String)}
+ * still returns the content as a String, decoded on every call and without resolving placeholders; read it with
+ * {@link #getByteBuffer()}, {@link #getResource()} or {@link #openReader()} to keep it off the heap. A refresh maps the
+ * new content into a new object, the old mapping is released once no longer referenced </p>
+ * <p> the file is owner-only and deleted as soon as mapped; the content of a cipher- data-id, decrypted by kms, is never
+ * written to the disk and stays on the heap </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 22:50
+ */
+public final class AcmMappedContent {
+
+    private static final Log logger = LogFactory.getLog(AcmMappedContent.class);
+
+    /**
+     * contents of at least this number of chars are mapped, not above 0 to never map
+     */
+    private static volatile int threshold = 1024*1024;
+
+    /**
+     * the files left by a process stopped while writing them are deleted after this time
+     */
+    private static final long STALE_MILLIS = 60*60*1000L;
+
+    private static volatile boolean cleaned;
+
+    private final ByteBuffer buffer;
+
+    private String hash;
+
+    AcmMappedContent(ByteBuffer buffer, String hash) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.hash = hash;
+    }
+
+    /**
+     * @param threshold contents of at least this number of chars are mapped, not above 0 to never map
+     */
+    public static void setThreshold(int threshold) {
+        AcmMappedContent.threshold = threshold;
+    }
+
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    static boolean isLarge(int length) {
+        int threshold = AcmMappedContent.threshold;
+        return threshold>0 && length>=threshold;
+    }
+
+    /**
+     * wrap a content on the heap, so that {@code environment.getProperty(dataId, AcmMappedContent.class)} reads
+     * a small content the same way as a mapped one; spring converts a mapped content to a String because of this method
+     * @param content config content
+     * @return return the content on the heap
+     */
+    public static AcmMappedContent valueOf(String content) {
+        return new AcmMappedContent(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    /**
+     * the value a content is stored with
+     * @param dataId dataId
+     * @param content config content
+     * @param hash the content digest if already known
+     * @return return the mapped content for a large content, the content itself otherwise, for a cipher- data-id or
+     * if it can not be mapped
+     */
+    static Object store(String dataId, String content, String hash) {
+        if(!isLarge(content.length()) || !AcmSnapshotStore.isAllowed(dataId)){
+            return content;
+        }
+        try{
+            return map(content, hash);
+        }catch (IOException e){
+            logger.warn(dataId+" map acm config content Exception, keep it on the heap: "+e.getMessage());
+            return content;
+        }
+    }
+
+    /**
+     * write a content into an owner-only temporary file and map it, the file is deleted once mapped
+     * @param content config content
+     * @param hash the content digest if already known
+     * @return return the mapped content
+     * @throws IOException write exception, or the directory can not be restricted to the owner
+     */
+    public static AcmMappedContent map(String content, String hash) throws IOException {
+        Path dir = new File(System.getProperty("java.io.tmpdir"), "acm-mapped-content").toPath();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if(posix){
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(AcmSnapshotStore.DIR_PERMISSIONS));
+            // created before under another umask, or by another user who then keeps it
+            Files.setPosixFilePermissions(dir, AcmSnapshotStore.DIR_PERMISSIONS);
+        }else {
+            Files.createDirectories(dir);
+            AcmSnapshotStore.restrict(dir.toFile(), true);
+        }
+        cleanStaleFiles(dir);
+        Path path = posix ? Files.createTempFile(dir, "acm", ".content", PosixFilePermissions.asFileAttribute(AcmSnapshotStore.FILE_PERMISSIONS))
+                : Files.createTempFile(dir, "acm", ".content");
+        File file = path.toFile();
+        if(!posix){
+            AcmSnapshotStore.restrict(file, false);
+        }
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            // encoded in chunks, the content is not copied into one more array
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), 64*1024);
+            writer.write(content);
+            writer.flush();
+            return new AcmMappedContent(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), hash);
+        }finally {
+            // the mapping stays valid after the file is deleted, except on windows where the file goes on exit
+            if(!file.delete()){
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * delete once per process the files a crashed process did not delete, the files being written are recent
+     */
+    private static void cleanStaleFiles(Path dir) {
+        if(cleaned){
+            return;
+        }
+        cleaned = true;
+        File[] files = dir.toFile().listFiles((d, name) -> name.startsWith("acm") && name.endsWith(".content"));
+        if(null!=files){
+            long stale = System.currentTimeMillis()-STALE_MILLIS;
+            for(File file:files){
+                if(file.lastModified()<stale && !file.delete()){
+                    logger.debug("delete stale acm mapped content "+file+" failed");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return return the UTF-8 bytes of the content, a new read-only buffer on every call
+     */
+    public ByteBuffer getByteBuffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * @return return the size of the content in bytes
+     */
+    public int getSize() {
+        return buffer.remaining();
+    }
+
+    /**
+     * @return return the UTF-8 content as a resource, every input stream reads the mapping
+     */
+    public Resource getResource() {
+        return new AbstractResource() {
+            @Override
+            public String getDescription() {
+                return "acm mapped content ["+getSize()+" bytes]";
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return new ByteBufferInputStream(getByteBuffer());
+            }
+
+            @Override
+            public long contentLength() {
+                return getSize();
+            }
+        };
+    }
+
+    /**
+     * @return return a reader decoding the content as it is read
+     */
+    public Reader openReader() {
+        return new InputStreamReader(new ByteBufferInputStream(getByteBuffer()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return return the digest of the content, see {@link AcmContentDigest#of(String)}
+     */
+    public synchronized String getHash() {
+        if(null==hash){
+            try{
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(getByteBuffer());
+                hash = AcmContentDigest.toHex(digest.digest());
+            }catch (NoSuchAlgorithmException e){
+                throw new IllegalStateException(e);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this==o){
+            return true;
+        }
+        return o instanceof AcmMappedContent && getHash().equals(((AcmMappedContent) o).getHash());
+    }
+
+    @Override
+    public int hashCode() {
+        return getHash().hashCode();
+    }
+
+    /**
+     * @return return the content decoded into a String
+     */
+    @Override
+    public String toString() {
+        return StandardCharsets.UTF_8.decode(getByteBuffer()).toString();
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if(length==0){
+                return 0;
+            }
+            if(!buffer.hasRemaining()){
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position()+count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
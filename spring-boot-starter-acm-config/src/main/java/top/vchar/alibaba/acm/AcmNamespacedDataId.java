@@ -0,0 +1,58 @@
+package top.vchar.alibaba.acm;
+
+/**
+ * <p> a data-id of another namespace than alibaba.acm.namespace, written as {namespace}@{dataId} wherever a data-id is
+ * expected: the repository, the stats, the snapshots, the change events and the {@link DiamondProxy} </p>
+ * <p> '@' is not allowed in an acm data-id, and the suffix of the data-id still decides its format </p>
+ * <p> a cipher- data-id can not be read from another namespace: alibaba.acm.open-kms-filter only decrypts the ones of
+ * the namespace of the application, the content would be read still encrypted </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 00:20
+ */
+public final class AcmNamespacedDataId {
+
+    public static final char SEPARATOR = '@';
+
+    private AcmNamespacedDataId(){
+    }
+
+    /**
+     * @param namespace namespace, empty for the namespace of the application
+     * @param dataId dataId
+     * @return return the data-id of the namespace
+     */
+    public static String of(String namespace, String dataId) {
+        return null==namespace || namespace.isEmpty() ? dataId : namespace+SEPARATOR+dataId;
+    }
+
+    /**
+     * @param id a data-id, maybe of another namespace
+     * @return return the namespace, null for a data-id of the namespace of the application
+     */
+    public static String namespaceOf(String id) {
+        int index = id.indexOf(SEPARATOR);
+        return index<0 ? null : id.substring(0, index);
+    }
+
+    /**
+     * @param id a data-id, maybe of another namespace
+     * @return return the data-id without the namespace
+     */
+    public static String dataIdOf(String id) {
+        return id.substring(id.indexOf(SEPARATOR)+1);
+    }
+
+    /**
+     * @param id a data-id, maybe of another namespace
+     * @return return the data-id
+     * @throws IllegalArgumentException the data-id is a cipher- data-id of another namespace
+     */
+    public static String checkReadable(String id) {
+        if(null!=namespaceOf(id) && dataIdOf(id).startsWith(AcmSnapshotStore.CIPHER_PREFIX)){
+            throw new IllegalArgumentException(id+" is a kms encrypted data-id of another namespace, it can only be read from the namespace of the application");
+        }
+        return id;
+    }
+}
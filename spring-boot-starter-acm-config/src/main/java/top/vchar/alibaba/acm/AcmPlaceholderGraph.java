@@ -0,0 +1,311 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.env.RandomValuePropertySource;
+import org.springframework.core.env.*;
+
+import java.util.*;
+
+/**
+ * <p> the placeholders of the acm config resolved in advance: the value of each key with a ${} is resolved when the
+ * config is installed, against the whole environment, and the acm property source holds the resolved value, so
+ * a read does not resolve it again </p>
+ * <p> the keys read while resolving each value are tracked, nested placeholders and defaults included, into a graph
+ * from each key to the acm keys depending on it, whatever the data-id or the property source of the key, such as the
+ * local application.yml. On a refresh only the keys depending on a changed key are resolved again, the ones whose
+ * resolved value changed are reported by {@link AcmConfigChangeEvent#getDerivedKeys()} </p>
+ * <p> a value that can not be resolved, or that reads an {@link AcmEncryptedValue}, an {@link AcmMappedContent} or a
+ * random value, is kept as it is and resolved on every read as before, so no plaintext is copied into the property source; a change
+ * outside of acm, such as a system property set at runtime, is not seen until the keys depending on it are refreshed </p>
+ * <p> a value reading a key not found, even with a default, is kept as it is as well: the config is installed before
+ * the property sources added later, such as a {@code @PropertySource} or local.server.port, so the key may be found
+ * by the reads </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 01:40
+ */
+public class AcmPlaceholderGraph {
+
+    private static final Log logger = LogFactory.getLog(AcmPlaceholderGraph.class);
+
+    private static final String PLACEHOLDER_PREFIX = "${";
+
+    /**
+     * name of the property source attached by {@link org.springframework.boot.context.properties.source.ConfigurationPropertySources#attach}
+     */
+    private static final String ATTACHED_PROPERTY_SOURCE_NAME = "configurationProperties";
+
+    /**
+     * name of the acm property source
+     */
+    private final String name;
+
+    /**
+     * the keys each resolved key read, by the canonical form of the keys read
+     */
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+
+    /**
+     * the keys depending on each key, by the canonical form of the key
+     */
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    /**
+     * the resolved value of each key with a placeholder
+     */
+    private final Map<String, Object> resolved = new HashMap<>();
+
+    /**
+     * @param name name of the acm property source
+     */
+    public AcmPlaceholderGraph(String name) {
+        this.name = name;
+    }
+
+    /**
+     * resolve every value with a placeholder
+     * @param environment environment, it holds the acm property source or will hold it first
+     * @param raw merged acm config as parsed
+     */
+    synchronized void build(ConfigurableEnvironment environment, Map<String, Object> raw) {
+        dependencies.clear();
+        dependents.clear();
+        resolved.clear();
+        GraphResolver resolver = new GraphResolver(environment, name, raw);
+        for(Map.Entry<String, Object> entry:raw.entrySet()){
+            if(hasPlaceholder(entry.getValue())){
+                resolve(resolver, entry.getKey(), (String) entry.getValue());
+            }
+        }
+        if(!resolved.isEmpty()){
+            logger.info(resolved.size()+" acm config values with placeholders resolved in advance");
+        }
+    }
+
+    /**
+     * resolve again the keys changed and the keys depending on them
+     * @param environment environment holding the acm property source
+     * @param raw new merged acm config as parsed
+     * @param changedKeys keys whose raw value changed
+     * @return return the keys whose raw value did not change but whose resolved value did, or may have when it is
+     * not resolved in advance
+     */
+    synchronized Set<String> update(ConfigurableEnvironment environment, Map<String, Object> raw, Collection<String> changedKeys) {
+        Set<String> affected = new LinkedHashSet<>(changedKeys);
+        for(String key:changedKeys){
+            Set<String> keys = dependents.get(AcmConfigurationPropertiesRebinder.canonical(key));
+            if(null!=keys){
+                affected.addAll(keys);
+            }
+        }
+        GraphResolver resolver = null;
+        Set<String> derived = new HashSet<>();
+        for(String key:affected){
+            boolean wasResolved = resolved.containsKey(key);
+            Object before = resolved.get(key);
+            remove(key);
+            Object value = raw.get(key);
+            if(hasPlaceholder(value)){
+                if(null==resolver){
+                    resolver = new GraphResolver(environment, name, raw);
+                }
+                resolve(resolver, key, (String) value);
+            }
+            // a value left to the reads may have changed as well
+            if(!changedKeys.contains(key) && raw.containsKey(key)
+                    && !(wasResolved && resolved.containsKey(key) && Objects.equals(before, resolved.get(key)))){
+                derived.add(key);
+            }
+        }
+        return derived;
+    }
+
+    /**
+     * @param raw merged acm config as parsed
+     * @return return the config with the resolved values, the raw config itself when there are none
+     */
+    synchronized Map<String, Object> apply(Map<String, Object> raw) {
+        return resolved.isEmpty() ? raw : AcmPropertySource.replace(raw, resolved);
+    }
+
+    /**
+     * @param key property key
+     * @return return the acm keys whose value reads the key, directly or through another placeholder
+     */
+    public synchronized Set<String> getDependents(String key) {
+        Set<String> keys = dependents.get(AcmConfigurationPropertiesRebinder.canonical(key));
+        return null==keys ? Collections.emptySet() : new HashSet<>(keys);
+    }
+
+    /**
+     * @param key acm key
+     * @return return the keys its value reads, empty if it has no placeholder resolved in advance
+     */
+    public synchronized Set<String> getDependencies(String key) {
+        Set<String> keys = dependencies.get(key);
+        return null==keys ? Collections.emptySet() : new HashSet<>(keys);
+    }
+
+    /**
+     * @return return the number of values resolved in advance
+     */
+    public synchronized int size() {
+        return resolved.size();
+    }
+
+    private void resolve(GraphResolver resolver, String key, String value) {
+        Set<String> keys = new HashSet<>();
+        String resolvedValue = resolver.resolve(value, keys);
+        if(null!=resolvedValue){
+            resolved.put(key, resolvedValue);
+        }else {
+            // left to the reads, which resolve it or report it as before
+            logger.debug(key+" acm config value not resolved in advance: "+resolver.unresolved);
+        }
+        // tracked even if not resolved, a change of a key read makes it resolvable
+        Set<String> canonicalKeys = new HashSet<>();
+        for(String dependency:keys){
+            String canonical = AcmConfigurationPropertiesRebinder.canonical(dependency);
+            canonicalKeys.add(canonical);
+            dependents.computeIfAbsent(canonical, k -> new HashSet<>()).add(key);
+        }
+        dependencies.put(key, canonicalKeys);
+    }
+
+    private void remove(String key) {
+        resolved.remove(key);
+        Set<String> keys = dependencies.remove(key);
+        if(null!=keys){
+            for(String dependency:keys){
+                Set<String> set = dependents.get(dependency);
+                if(null!=set && set.remove(key) && set.isEmpty()){
+                    dependents.remove(dependency);
+                }
+            }
+        }
+    }
+
+    private static boolean hasPlaceholder(Object value) {
+        return value instanceof String && ((String) value).contains(PLACEHOLDER_PREFIX);
+    }
+
+    /**
+     * resolve a value like the environment does, with the new acm config in place of the installed one, and record
+     * the keys its placeholders read
+     */
+    private static class GraphResolver extends PropertySourcesPropertyResolver {
+
+        private final PropertySources propertySources;
+
+        private Set<String> keys;
+
+        /**
+         * the keys read by the value being resolved and not found
+         */
+        private Set<String> missing;
+
+        /**
+         * the key read by the value being resolved that must not be copied as a String, null if none
+         */
+        private String keptAsRaw;
+
+        /**
+         * why the last value was not resolved
+         */
+        private String unresolved;
+
+        GraphResolver(ConfigurableEnvironment environment, String name, Map<String, Object> raw) {
+            this(sources(environment, name, raw));
+            setConversionService(environment.getConversionService());
+        }
+
+        private GraphResolver(PropertySources propertySources) {
+            super(propertySources);
+            this.propertySources = propertySources;
+        }
+
+        private static PropertySources sources(ConfigurableEnvironment environment, String name, Map<String, Object> raw) {
+            MutablePropertySources sources = new MutablePropertySources(environment.getPropertySources());
+            // the view spring boot attaches over all the property sources would read the installed acm config
+            sources.remove(ATTACHED_PROPERTY_SOURCE_NAME);
+            MapPropertySource source = new MapPropertySource(name, raw);
+            if(sources.contains(name)){
+                sources.replace(name, source);
+            }else {
+                sources.addFirst(source);
+            }
+            return sources;
+        }
+
+        /**
+         * @param value value with placeholders
+         * @param keys receives the keys read
+         * @return return the resolved value, null if it can not be resolved, reads a key not found or a key that
+         * must not be copied as a String
+         */
+        String resolve(String value, Set<String> keys) {
+            this.keys = keys;
+            this.missing = new HashSet<>();
+            this.keptAsRaw = null;
+            this.unresolved = null;
+            try{
+                String resolved = resolveRequiredPlaceholders(value);
+                if(null!=keptAsRaw){
+                    unresolved = keptAsRaw+" is not a plain value";
+                    return null;
+                }
+                for(String key:missing){
+                    if(!isDefaultSyntax(key)){
+                        unresolved = key+" is not found";
+                        return null;
+                    }
+                }
+                return resolved;
+            }catch (IllegalArgumentException e){
+                unresolved = null!=keptAsRaw ? keptAsRaw+" is not a plain value" : e.getMessage();
+                return null;
+            }finally {
+                this.keys = null;
+                this.missing = null;
+            }
+        }
+
+        /**
+         * @param key a key not found
+         * @return return true if it is only the whole {@code key:default} looked up first, whose key was found
+         */
+        private boolean isDefaultSyntax(String key) {
+            int index = key.indexOf(':');
+            return index>0 && keys.contains(key.substring(0, index)) && !missing.contains(key.substring(0, index));
+        }
+
+        @Override
+        protected String getPropertyAsRawString(String key) {
+            if(null!=keys){
+                keys.add(key);
+            }
+            if(null!=keptAsRaw){
+                // the value is not resolved in advance anyway
+                return null;
+            }
+            for(PropertySource<?> source:propertySources){
+                Object value = source.getProperty(key);
+                if(null!=value){
+                    // a random value is new on every read
+                    if(source instanceof RandomValuePropertySource || value instanceof AcmEncryptedValue || value instanceof AcmMappedContent){
+                        keptAsRaw = key;
+                        return null;
+                    }
+                    break;
+                }
+            }
+            String value = super.getPropertyAsRawString(key);
+            if(null==value && null!=missing){
+                missing.add(key);
+            }
+            return value;
+        }
+    }
+}
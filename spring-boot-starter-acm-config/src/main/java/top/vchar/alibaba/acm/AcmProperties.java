@@ -2,7 +2,10 @@ package top.vchar.alibaba.acm;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <p> ACM配置信息 </p>
@@ -24,6 +27,11 @@ public class AcmProperties {
      */
     private List<String> dataIdList;
 
+    /**
+     * config files loaded in the background after the application is ready, the startup does not wait for them
+     */
+    private List<String> lazyDataIdList;
+
     /**
      * diamond group
      */
@@ -53,6 +61,17 @@ public class AcmProperties {
      * timeout to get configuration
      */
     private int timeOut = 3000;
+
+    /**
+     * overall deadline (ms) for loading all data-ids at startup, less than or equal to 0 means no deadline
+     */
+    private int startupDeadline = 10000;
+
+    /**
+     * max number of threads used to fetch data-ids concurrently at startup
+     */
+    private int fetchThreads = 4;
+
     /**
      * name of ram role granted to ECS
      */
@@ -73,6 +92,116 @@ public class AcmProperties {
      */
     private boolean vmPriority = true;
 
+    /**
+     * how the local snapshot of each data-id is used, the snapshots hold the content in plaintext so they are opt-in;
+     * the cipher- data-ids are never saved
+     */
+    private SnapshotMode snapshotMode = SnapshotMode.NONE;
+
+    /**
+     * local snapshot directory, default ${user.home}/.acm-snapshot
+     */
+    private String snapshotDir;
+
+    /**
+     * expose an {@link AcmCachingPropertyResolver} bean caching the resolved properties
+     */
+    private boolean propertyCache = false;
+
+    /**
+     * where the config is read from: acm (default), file, latency, or the class name of a {@link DiamondProxy};
+     * when not set the first {@link DiamondProxy} registered with {@link java.util.ServiceLoader} is used
+     */
+    private String diamondProxy;
+
+    /**
+     * settings of the diamond proxy, such as dir of the file proxy
+     */
+    private Map<String, String> proxy = new HashMap<>();
+
+    /**
+     * share one config cache between every application of the process, a data-id is fetched once and kept up to date
+     * by the pushes of acm, see {@link SingleFlightDiamondProxy}
+     */
+    private boolean sharedCache = true;
+
+    /**
+     * read acm with an adaptive time out, a hedged request and a circuit breaker, see {@link ResilientDiamondProxy}
+     */
+    private boolean resilientFetch = true;
+
+    /**
+     * quiet time in ms the pushes of acm are queued for before they are applied together, 0 to apply each push at once
+     */
+    private int refreshDebounce = 100;
+
+    /**
+     * how the config index built into the application is used, see {@link AcmConfigIndex}
+     */
+    private IndexMode indexMode = IndexMode.NONE;
+
+    /**
+     * location of the config index, default classpath:META-INF/acm-config.index
+     */
+    private String indexLocation;
+
+    /**
+     * start fetching the data-ids when the application starts, before the environment is prepared, see {@link AcmEarlyFetchListener}
+     */
+    private boolean earlyFetch = false;
+
+    /**
+     * a data-id that is not yml or properties with a content of at least this number of chars is kept off the heap
+     * in a memory-mapped file, not above 0 to keep every content on the heap, see {@link AcmMappedContent}
+     */
+    private int mappedContentThreshold = 1024*1024;
+
+    /**
+     * keep the {cipher} values encrypted until read, see {@link AcmEncryptedValue}
+     */
+    private boolean lazyDecrypt = false;
+
+    /**
+     * decryptor of the {cipher} values: kms ({@link AcmKmsDecryptor}, default) or the class name of an {@link AcmDecryptor}
+     */
+    private String decryptor;
+
+    /**
+     * max number of decrypted values kept, see {@link AcmSecretCache}
+     */
+    private int secretCacheSize = 1024;
+
+    /**
+     * ms a decrypted value is kept, not above 0 to keep it until evicted
+     */
+    private long secretCacheTtl = 10*60*1000L;
+
+    /**
+     * keep the decrypted values off the heap in direct buffers
+     */
+    private boolean secretCacheOffHeap = false;
+
+    /**
+     * threads running the callbacks of the config changes, see {@link AcmListenerDispatcher}
+     */
+    private int listenerThreads = 2;
+
+    /**
+     * config changes queued for the callbacks of each data-id, the oldest is merged into the next one when full
+     */
+    private int listenerQueueCapacity = 16;
+
+    /**
+     * the data-ids of other namespaces of the same endpoint, by namespace, merged before the data-id-list,
+     * see {@link AcmNamespacedDataId}
+     */
+    private Map<String, String> namespaceDataIdList = new LinkedHashMap<>();
+
+    /**
+     * the data-id the feature flags are defined in, it must be in the data-id-list, see {@link AcmFeatureFlags}
+     */
+    private String featureFlagDataId;
+
     public String getGroup() {
         return group;
     }
@@ -89,6 +218,22 @@ public class AcmProperties {
         this.timeOut = timeOut;
     }
 
+    public int getStartupDeadline() {
+        return startupDeadline;
+    }
+
+    public void setStartupDeadline(int startupDeadline) {
+        this.startupDeadline = startupDeadline;
+    }
+
+    public int getFetchThreads() {
+        return fetchThreads;
+    }
+
+    public void setFetchThreads(int fetchThreads) {
+        this.fetchThreads = fetchThreads;
+    }
+
     public String getEndpoint() {
         return endpoint;
     }
@@ -145,6 +290,14 @@ public class AcmProperties {
         this.dataIdList = dataIdList;
     }
 
+    public List<String> getLazyDataIdList() {
+        return lazyDataIdList;
+    }
+
+    public void setLazyDataIdList(List<String> lazyDataIdList) {
+        this.lazyDataIdList = lazyDataIdList;
+    }
+
     public boolean getOpenKMSFilter() {
         return openKMSFilter;
     }
@@ -169,21 +322,257 @@ public class AcmProperties {
         this.vmPriority = vmPriority;
     }
 
+    public SnapshotMode getSnapshotMode() {
+        return snapshotMode;
+    }
+
+    public void setSnapshotMode(SnapshotMode snapshotMode) {
+        this.snapshotMode = snapshotMode;
+    }
+
+    public String getSnapshotDir() {
+        return snapshotDir;
+    }
+
+    public void setSnapshotDir(String snapshotDir) {
+        this.snapshotDir = snapshotDir;
+    }
+
+    public boolean getPropertyCache() {
+        return propertyCache;
+    }
+
+    public void setPropertyCache(boolean propertyCache) {
+        this.propertyCache = propertyCache;
+    }
+
+    public String getDiamondProxy() {
+        return diamondProxy;
+    }
+
+    public void setDiamondProxy(String diamondProxy) {
+        this.diamondProxy = diamondProxy;
+    }
+
+    public Map<String, String> getProxy() {
+        return proxy;
+    }
+
+    public void setProxy(Map<String, String> proxy) {
+        this.proxy = proxy;
+    }
+
+    public boolean getSharedCache() {
+        return sharedCache;
+    }
+
+    public void setSharedCache(boolean sharedCache) {
+        this.sharedCache = sharedCache;
+    }
+
+    public int getRefreshDebounce() {
+        return refreshDebounce;
+    }
+
+    public void setRefreshDebounce(int refreshDebounce) {
+        this.refreshDebounce = refreshDebounce;
+    }
+
+    public boolean getResilientFetch() {
+        return resilientFetch;
+    }
+
+    public void setResilientFetch(boolean resilientFetch) {
+        this.resilientFetch = resilientFetch;
+    }
+
+    public IndexMode getIndexMode() {
+        return indexMode;
+    }
+
+    public void setIndexMode(IndexMode indexMode) {
+        this.indexMode = indexMode;
+    }
+
+    public String getIndexLocation() {
+        return indexLocation;
+    }
+
+    public void setIndexLocation(String indexLocation) {
+        this.indexLocation = indexLocation;
+    }
+
+    public int getListenerThreads() {
+        return listenerThreads;
+    }
+
+    public void setListenerThreads(int listenerThreads) {
+        this.listenerThreads = listenerThreads;
+    }
+
+    public int getListenerQueueCapacity() {
+        return listenerQueueCapacity;
+    }
+
+    public void setListenerQueueCapacity(int listenerQueueCapacity) {
+        this.listenerQueueCapacity = listenerQueueCapacity;
+    }
+
+    public Map<String, String> getNamespaceDataIdList() {
+        return namespaceDataIdList;
+    }
+
+    public void setNamespaceDataIdList(Map<String, String> namespaceDataIdList) {
+        this.namespaceDataIdList = namespaceDataIdList;
+    }
+
+    public String getFeatureFlagDataId() {
+        return featureFlagDataId;
+    }
+
+    public void setFeatureFlagDataId(String featureFlagDataId) {
+        this.featureFlagDataId = featureFlagDataId;
+    }
+
+    public boolean getEarlyFetch() {
+        return earlyFetch;
+    }
+
+    public void setEarlyFetch(boolean earlyFetch) {
+        this.earlyFetch = earlyFetch;
+    }
+
+    public int getMappedContentThreshold() {
+        return mappedContentThreshold;
+    }
+
+    public void setMappedContentThreshold(int mappedContentThreshold) {
+        this.mappedContentThreshold = mappedContentThreshold;
+    }
+
+    public boolean getLazyDecrypt() {
+        return lazyDecrypt;
+    }
+
+    public void setLazyDecrypt(boolean lazyDecrypt) {
+        this.lazyDecrypt = lazyDecrypt;
+    }
+
+    public String getDecryptor() {
+        return decryptor;
+    }
+
+    public void setDecryptor(String decryptor) {
+        this.decryptor = decryptor;
+    }
+
+    public int getSecretCacheSize() {
+        return secretCacheSize;
+    }
+
+    public void setSecretCacheSize(int secretCacheSize) {
+        this.secretCacheSize = secretCacheSize;
+    }
+
+    public long getSecretCacheTtl() {
+        return secretCacheTtl;
+    }
+
+    public void setSecretCacheTtl(long secretCacheTtl) {
+        this.secretCacheTtl = secretCacheTtl;
+    }
+
+    public boolean getSecretCacheOffHeap() {
+        return secretCacheOffHeap;
+    }
+
+    public void setSecretCacheOffHeap(boolean secretCacheOffHeap) {
+        this.secretCacheOffHeap = secretCacheOffHeap;
+    }
+
     @Override
     public String toString() {
         return "AcmProperties{" +
                 "applicationDataId='" + applicationDataId + '\'' +
                 ", dataIdList=" + dataIdList +
+                ", lazyDataIdList=" + lazyDataIdList +
                 ", group='" + group + '\'' +
                 ", endpoint='" + endpoint + '\'' +
                 ", namespace='" + namespace + '\'' +
                 ", accessKey='" + accessKey + '\'' +
                 ", secretKey='" + secretKey + '\'' +
                 ", timeOut=" + timeOut +
+                ", startupDeadline=" + startupDeadline +
+                ", fetchThreads=" + fetchThreads +
                 ", ramRoleName='" + ramRoleName + '\'' +
                 ", openKMSFilter=" + openKMSFilter +
                 ", regionId='" + regionId + '\'' +
                 ", vmPriority=" + vmPriority +
+                ", snapshotMode=" + snapshotMode +
+                ", snapshotDir='" + snapshotDir + '\'' +
+                ", propertyCache=" + propertyCache +
+                ", diamondProxy='" + diamondProxy + '\'' +
+                ", proxy=" + proxy +
+                ", sharedCache=" + sharedCache +
+                ", resilientFetch=" + resilientFetch +
+                ", refreshDebounce=" + refreshDebounce +
+                ", indexMode=" + indexMode +
+                ", indexLocation='" + indexLocation + '\'' +
+                ", earlyFetch=" + earlyFetch +
+                ", mappedContentThreshold=" + mappedContentThreshold +
+                ", lazyDecrypt=" + lazyDecrypt +
+                ", decryptor='" + decryptor + '\'' +
+                ", secretCacheSize=" + secretCacheSize +
+                ", secretCacheTtl=" + secretCacheTtl +
+                ", secretCacheOffHeap=" + secretCacheOffHeap +
+                ", listenerThreads=" + listenerThreads +
+                ", listenerQueueCapacity=" + listenerQueueCapacity +
+                ", namespaceDataIdList=" + namespaceDataIdList +
+                ", featureFlagDataId='" + featureFlagDataId + '\'' +
                 '}';
     }
+
+    /**
+     * local snapshot mode
+     */
+    public enum SnapshotMode {
+        /**
+         * never read or write snapshots, default
+         */
+        NONE,
+        /**
+         * save the last good content, read it when a fetch fails or times out
+         */
+        FALLBACK,
+        /**
+         * boot from the snapshot when present and revalidate it in the background
+         */
+        SNAPSHOT_FIRST;
+
+        public static SnapshotMode parse(String value){
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /**
+     * config index mode
+     */
+    public enum IndexMode {
+        /**
+         * never read the index
+         */
+        NONE,
+        /**
+         * boot the data-ids in the index from it, later changes come from the pushes of acm
+         */
+        INDEX,
+        /**
+         * boot from the index and compare it with acm in the background, a data-id changed since the build is refreshed
+         */
+        INDEX_REVALIDATE;
+
+        public static IndexMode parse(String value){
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
 }
@@ -0,0 +1,160 @@
+package top.vchar.alibaba.acm;
+
+import org.springframework.core.env.EnumerablePropertySource;
+
+import java.util.*;
+
+/**
+ * <p> immutable property source holding the acm config </p>
+ * <p> keys are interned and kept sorted in an array next to an array of values, a lookup is a binary search,
+ * so there is no hash table and no entry object per key </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 13:10
+ */
+public class AcmPropertySource extends EnumerablePropertySource<Map<String, Object>> {
+
+    public AcmPropertySource(String name, Map<String, Object> source) {
+        super(name, compact(source));
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return getSource().get(name);
+    }
+
+    @Override
+    public boolean containsProperty(String name) {
+        return getSource().containsKey(name);
+    }
+
+    /**
+     * the names are shared with the property source and must not be modified
+     * @return return the sorted property names
+     */
+    @Override
+    public String[] getPropertyNames() {
+        return ((CompactMap) getSource()).names;
+    }
+
+    /**
+     * copy a map into an immutable compact map
+     * @param source config
+     * @return return a read-only map backed by sorted arrays
+     */
+    public static Map<String, Object> compact(Map<String, Object> source) {
+        if(source instanceof CompactMap){
+            return source;
+        }
+        String[] names = new String[source.size()];
+        int i = 0;
+        for(String name:source.keySet()){
+            names[i++] = name.intern();
+        }
+        Arrays.sort(names);
+        Object[] values = new Object[names.length];
+        for(i=0; i<names.length; i++){
+            values[i] = source.get(names[i]);
+        }
+        return new CompactMap(names, values);
+    }
+
+    /**
+     * wrap arrays into an immutable compact map without copying them
+     * @param names interned property names, sorted and unique
+     * @param values values in the order of the names
+     * @return return a read-only map backed by the arrays
+     */
+    static Map<String, Object> compact(String[] names, Object[] values) {
+        return new CompactMap(names, values);
+    }
+
+    /**
+     * replace some values of a config, the names of a compact config are shared with the copy
+     * @param source config
+     * @param values new values of some of its keys
+     * @return return a read-only copy of the config with the new values
+     */
+    static Map<String, Object> replace(Map<String, Object> source, Map<String, Object> values) {
+        if(!(source instanceof CompactMap)){
+            Map<String, Object> copy = new HashMap<>(source);
+            copy.putAll(values);
+            return compact(copy);
+        }
+        CompactMap compact = (CompactMap) source;
+        Object[] copy = compact.values.clone();
+        for(Map.Entry<String, Object> entry:values.entrySet()){
+            int index = compact.indexOf(entry.getKey());
+            if(index>=0){
+                copy[index] = entry.getValue();
+            }
+        }
+        return new CompactMap(compact.names, copy);
+    }
+
+    private static final class CompactMap extends AbstractMap<String, Object> {
+
+        private final String[] names;
+
+        private final Object[] values;
+
+        CompactMap(String[] names, Object[] values) {
+            this.names = names;
+            this.values = values;
+        }
+
+        private int indexOf(Object key) {
+            return key instanceof String ? Arrays.binarySearch(names, key) : -1;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int index = indexOf(key);
+            return index<0 ? null : values[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key)>=0;
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index<names.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if(index>=names.length){
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<>(names[index], values[index]);
+                            index++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return names.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> queue the contents pushed by acm for every data-id and apply them together once no push arrived for the window,
+ * only the latest content of each data-id is kept </p>
+ * <p> several data-ids published one after another, or a data-id edited several times, are parsed, merged and rebound
+ * once, and the environment never shows a state in between; a steady stream of pushes is applied at least every five
+ * windows </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 21:10
+ */
+public class AcmRefreshDebouncer {
+
+    private static final Log logger = LogFactory.getLog(AcmRefreshDebouncer.class);
+
+    private final AcmConfigRepository repository;
+
+    private final long window;
+
+    /**
+     * applies the queued contents, one apply at a time; null when every push is applied at once
+     */
+    private final ScheduledExecutorService executor;
+
+    private Map<String, String> pending = new LinkedHashMap<>();
+
+    private boolean scheduled;
+
+    private long firstPush;
+
+    private long lastPush;
+
+    /**
+     * @param repository acm config repository
+     * @param window quiet time in ms before the queued contents are applied, not above 0 to apply every push at once
+     */
+    public AcmRefreshDebouncer(AcmConfigRepository repository, long window) {
+        this.repository = repository;
+        this.window = TimeUnit.MILLISECONDS.toNanos(Math.max(0, window));
+        if(this.window>0){
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("acm-refresh-");
+            threadFactory.setDaemon(true);
+            this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        }else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * queue the content pushed for a data-id
+     * @param dataId dataId
+     * @param content new content
+     */
+    public void submit(String dataId, String content) {
+        if(null==executor){
+            repository.refresh(dataId, content);
+            return;
+        }
+        synchronized (this){
+            pending.put(dataId, content);
+            lastPush = System.nanoTime();
+            if(!scheduled){
+                scheduled = true;
+                firstPush = lastPush;
+                executor.schedule(this::flush, window, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void flush() {
+        Map<String, String> contents;
+        synchronized (this){
+            long now = System.nanoTime();
+            long wait = Math.min(lastPush+window-now, firstPush+5*window-now);
+            if(wait>0){
+                executor.schedule(this::flush, wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+            contents = pending;
+            pending = new LinkedHashMap<>();
+            scheduled = false;
+        }
+        if(contents.size()>1){
+            logger.info("apply the acm config of "+contents.size()+" data-ids at once: "+String.join(",", contents.keySet()));
+        }
+        try{
+            repository.refresh(contents);
+        }catch (Exception e){
+            logger.error("apply acm config change Exception: "+e.getMessage(), e);
+        }
+    }
+
+    /**
+     * stop applying, the queued contents are dropped
+     */
+    public void close() {
+        if(null!=executor){
+            executor.shutdownNow();
+        }
+    }
+}
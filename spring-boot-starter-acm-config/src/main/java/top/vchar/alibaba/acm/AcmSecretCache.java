@@ -0,0 +1,279 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p> the plaintexts of the {@link AcmEncryptedValue}, decrypted on the first read </p>
+ * <p> the cache holds at most the max size of plaintexts, each for the ttl after it was decrypted; the oldest is
+ * evicted first, an evicted or expired plaintext is decrypted again when read. Off the heap the plaintext is kept in
+ * a direct buffer and zeroed when evicted, so it is not in a heap dump except while it is read </p>
+ * <p> a read missing the cache decrypts its value and the values of the same data-id not decrypted yet in one batch,
+ * the other reads of these values wait for the batch instead of decrypting them again </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 01:10
+ */
+public class AcmSecretCache {
+
+    private static final Log logger = LogFactory.getLog(AcmSecretCache.class);
+
+    public static final String BEAN_NAME = "acmSecretCache";
+
+    /**
+     * max number of values decrypted in one batch
+     */
+    private static final int MAX_BATCH = 32;
+
+    private final AcmDecryptor decryptor;
+
+    private final int maxSize;
+
+    private final long ttl;
+
+    private final boolean offHeap;
+
+    /**
+     * plaintexts by ciphertext in the order they were decrypted, so the oldest expires first
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private final Map<String, CompletableFuture<String>> decrypting = new HashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong decryptCount = new AtomicLong();
+
+    private final AtomicLong decryptTime = new AtomicLong();
+
+    /**
+     * @param decryptor decryptor, initialized
+     * @param maxSize max number of plaintexts kept, at least 1
+     * @param ttl ms a plaintext is kept after it was decrypted, not above 0 to keep it until evicted
+     * @param offHeap true to keep the plaintexts in direct buffers
+     */
+    public AcmSecretCache(AcmDecryptor decryptor, int maxSize, long ttl, boolean offHeap) {
+        this.decryptor = decryptor;
+        this.maxSize = Math.max(1, maxSize);
+        this.ttl = ttl;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @param value encrypted value
+     * @return return the plaintext
+     * @throws IllegalStateException the value can not be decrypted
+     */
+    public String get(AcmEncryptedValue value) {
+        return get(value, true);
+    }
+
+    /**
+     * @param retry true to decrypt the value again when the batch of another value failed to
+     */
+    private String get(AcmEncryptedValue value, boolean retry) {
+        String ciphertext = value.getCiphertext();
+        List<String> batch = null;
+        CompletableFuture<String> future;
+        synchronized (this){
+            String plaintext = lookup(ciphertext);
+            if(null!=plaintext){
+                hitCount.incrementAndGet();
+                return plaintext;
+            }
+            missCount.incrementAndGet();
+            future = decrypting.get(ciphertext);
+            if(null==future){
+                batch = new ArrayList<>();
+                batch.add(ciphertext);
+                for(String other:value.getBatch()){
+                    if(batch.size()>=Math.min(MAX_BATCH, maxSize)){
+                        break;
+                    }
+                    if(!batch.contains(other) && !decrypting.containsKey(other) && null==lookup(other)){
+                        batch.add(other);
+                    }
+                }
+                for(String item:batch){
+                    decrypting.put(item, new CompletableFuture<>());
+                }
+                future = decrypting.get(ciphertext);
+            }
+        }
+        if(null!=batch){
+            decrypt(batch);
+        }
+        try{
+            return future.get();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("decrypt acm config value interrupted", e);
+        }catch (ExecutionException e){
+            if(null==batch && retry){
+                return get(value, false);
+            }
+            throw new IllegalStateException("decrypt acm config value Exception: "+e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * decrypt a batch, the first value is the one read: when the batch fails it is decrypted alone so that its own
+     * error is reported, the other values are decrypted again when read
+     */
+    private void decrypt(List<String> batch) {
+        long start = System.nanoTime();
+        Map<String, String> plaintexts;
+        try{
+            plaintexts = batch.size()==1 ? Collections.emptyMap() : decryptor.decrypt(batch);
+        }catch (Exception e){
+            logger.warn("decrypt "+batch.size()+" acm config values Exception, decrypt the value read alone: "+e.getMessage());
+            plaintexts = Collections.emptyMap();
+        }
+        Exception error = null;
+        if(!plaintexts.containsKey(batch.get(0))){
+            try{
+                plaintexts = new HashMap<>(plaintexts);
+                plaintexts.put(batch.get(0), decryptor.decrypt(batch.get(0)));
+            }catch (Exception e){
+                error = e;
+            }
+        }
+        decryptCount.addAndGet(plaintexts.size());
+        decryptTime.addAndGet(System.nanoTime()-start);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        synchronized (this){
+            for(String ciphertext:batch){
+                String plaintext = plaintexts.get(ciphertext);
+                if(null!=plaintext){
+                    put(ciphertext, plaintext);
+                }
+                futures.add(decrypting.remove(ciphertext));
+            }
+        }
+        for(int i=0; i<batch.size(); i++){
+            String plaintext = plaintexts.get(batch.get(i));
+            if(null!=plaintext){
+                futures.get(i).complete(plaintext);
+            }else {
+                futures.get(i).completeExceptionally(null!=error && i==0 ? error : new IllegalStateException("not decrypted in the batch of another value"));
+            }
+        }
+    }
+
+    private String lookup(String ciphertext) {
+        Entry entry = entries.get(ciphertext);
+        if(null==entry){
+            return null;
+        }
+        if(entry.isExpired()){
+            entries.remove(ciphertext).clear();
+            return null;
+        }
+        return entry.get();
+    }
+
+    private void put(String ciphertext, String plaintext) {
+        Entry previous = entries.remove(ciphertext);
+        if(null!=previous){
+            previous.clear();
+        }
+        entries.put(ciphertext, new Entry(plaintext));
+        Iterator<Entry> iterator = entries.values().iterator();
+        while(iterator.hasNext()){
+            Entry eldest = iterator.next();
+            if(entries.size()<=maxSize && !eldest.isExpired()){
+                break;
+            }
+            eldest.clear();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * drop every plaintext, they are decrypted again when read
+     */
+    public synchronized void clear() {
+        for(Entry entry:entries.values()){
+            entry.clear();
+        }
+        entries.clear();
+    }
+
+    /**
+     * @return return the number of plaintexts kept, including the expired ones not evicted yet
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return return the number of values decrypted
+     */
+    public long getDecryptCount() {
+        return decryptCount.get();
+    }
+
+    /**
+     * @return return the total time of the batches in ms
+     */
+    public double getDecryptTime() {
+        return decryptTime.get()/1e6;
+    }
+
+    private final class Entry {
+
+        private final long expiresAt;
+
+        private final String plaintext;
+
+        private final ByteBuffer buffer;
+
+        Entry(String plaintext) {
+            this.expiresAt = ttl>0 ? System.currentTimeMillis()+ttl : Long.MAX_VALUE;
+            if(offHeap){
+                byte[] bytes = plaintext.getBytes(StandardCharsets.UTF_8);
+                this.buffer = ByteBuffer.allocateDirect(bytes.length);
+                this.buffer.put(bytes).flip();
+                Arrays.fill(bytes, (byte) 0);
+                this.plaintext = null;
+            }else {
+                this.buffer = null;
+                this.plaintext = plaintext;
+            }
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis()>=expiresAt;
+        }
+
+        String get() {
+            return null==buffer ? plaintext : StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+        }
+
+        void clear() {
+            if(null!=buffer){
+                for(int i=0; i<buffer.capacity(); i++){
+                    buffer.put(i, (byte) 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package top.vchar.alibaba.acm;
+
+import org.springframework.util.StringUtils;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p> local snapshot of the last good content of each (namespace, group, data-id) </p>
+ * <p> a snapshot file is a small header (magic, version, SHA-256 of the content) followed by the gzip compressed content </p>
+ * <p> the content is kept in plaintext, the directories and the files are only readable by the owner; the cipher- data-ids,
+ * decrypted by the kms filter of acm, are never saved nor read </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 10:26
+ */
+public class AcmSnapshotStore {
+
+    private static final int MAGIC = 0x41434d53;
+
+    private static final int VERSION = 1;
+
+    private static final String DEFAULT_NAMESPACE = "public";
+
+    /**
+     * prefix of the data-ids encrypted with kms
+     */
+    static final String CIPHER_PREFIX = "cipher-";
+
+    static final Set<PosixFilePermission> DIR_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+
+    static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+    private final File baseDir;
+
+    public AcmSnapshotStore(File baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * the default snapshot directory
+     * @return return ${user.home}/.acm-snapshot
+     */
+    public static File defaultDir(){
+        return new File(System.getProperty("user.home"), ".acm-snapshot");
+    }
+
+    /**
+     * @param dataId dataId, maybe of another namespace
+     * @return return false for a cipher- data-id, its content must not be written to the disk
+     */
+    public static boolean isAllowed(String dataId){
+        return !AcmNamespacedDataId.dataIdOf(dataId).startsWith(CIPHER_PREFIX);
+    }
+
+    /**
+     * read a snapshot
+     * @param namespace namespace
+     * @param group group
+     * @param dataId dataId
+     * @return return the snapshot, null if it does not exist, is corrupted or the data-id is not allowed
+     */
+    public AcmSnapshot load(String namespace, String group, String dataId){
+        if(!isAllowed(dataId)){
+            return null;
+        }
+        File file = getFile(namespace, group, dataId);
+        if(!file.isFile()){
+            return null;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+            if(in.readInt()!=MAGIC || in.readInt()!=VERSION){
+                return null;
+            }
+            byte[] digest = new byte[in.readUnsignedByte()];
+            in.readFully(digest);
+            String content = readContent(new GZIPInputStream(in));
+            if(!Arrays.equals(digest, AcmContentDigest.digest(content))){
+                return null;
+            }
+            return new AcmSnapshot(content, AcmContentDigest.toHex(digest), file.lastModified());
+        }catch (IOException e){
+            return null;
+        }
+    }
+
+    /**
+     * save a snapshot, the file is only rewritten when the content changed
+     * @param namespace namespace
+     * @param group group
+     * @param dataId dataId
+     * @param content config content
+     * @return return true if the snapshot was written, false if it did not change or the data-id is not allowed
+     * @throws IOException write exception
+     */
+    public boolean save(String namespace, String group, String dataId, String content) throws IOException {
+        if(!isAllowed(dataId)){
+            return false;
+        }
+        byte[] digest = AcmContentDigest.digest(content);
+        AcmSnapshot current = load(namespace, group, dataId);
+        if(null!=current && current.getHash().equals(AcmContentDigest.toHex(digest))){
+            return false;
+        }
+        File file = getFile(namespace, group, dataId);
+        File dir = file.getParentFile();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        createDirectories(dir.toPath(), posix);
+        Path tmp = posix ? Files.createTempFile(dir.toPath(), file.getName(), ".tmp", PosixFilePermissions.asFileAttribute(FILE_PERMISSIONS))
+                : Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+        try{
+            if(!posix){
+                restrict(tmp.toFile(), false);
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(digest.length);
+            out.write(digest);
+            try(GZIPOutputStream gzip = new GZIPOutputStream(out)){
+                gzip.write(content.getBytes(StandardCharsets.UTF_8));
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }finally {
+            Files.deleteIfExists(tmp);
+        }
+        return true;
+    }
+
+    /**
+     * create the snapshot directories owner-only, the ones created before under another umask are restricted as well
+     */
+    private void createDirectories(Path dir, boolean posix) throws IOException {
+        if(posix){
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(DIR_PERMISSIONS));
+        }else {
+            Files.createDirectories(dir);
+        }
+        Path base = baseDir.toPath();
+        for(Path path=dir; null!=path && path.startsWith(base); path=path.getParent()){
+            if(posix){
+                Files.setPosixFilePermissions(path, DIR_PERMISSIONS);
+            }else {
+                restrict(path.toFile(), true);
+            }
+        }
+    }
+
+    /**
+     * restrict a file to its owner where posix permissions are not supported
+     */
+    static void restrict(File file, boolean executable) {
+        file.setReadable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(false, false);
+        file.setWritable(true, true);
+        if(executable){
+            file.setExecutable(false, false);
+            file.setExecutable(true, true);
+        }
+    }
+
+    File getFile(String namespace, String group, String dataId){
+        File dir = new File(new File(baseDir, encode(StringUtils.isEmpty(namespace) ? DEFAULT_NAMESPACE : namespace)), encode(group));
+        return new File(dir, encode(dataId)+".snapshot");
+    }
+
+    private static String encode(String name){
+        try{
+            return URLEncoder.encode(name, "UTF-8");
+        }catch (UnsupportedEncodingException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String readContent(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n=in.read(buffer))!=-1){
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * snapshot content
+     */
+    public static class AcmSnapshot {
+
+        private final String content;
+
+        private final String hash;
+
+        private final long lastModified;
+
+        AcmSnapshot(String content, String hash, long lastModified) {
+            this.content = content;
+            this.hash = hash;
+            this.lastModified = lastModified;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
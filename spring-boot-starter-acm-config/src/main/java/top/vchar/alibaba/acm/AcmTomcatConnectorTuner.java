@@ -0,0 +1,328 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.context.properties.bind.BindResult;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * <p> apply the changes of server.tomcat.* pushed by acm to the running tomcat connectors, no restart needed:
+ * max-threads and min-spare-threads resize the request executor, max-connections changes the connection limit </p>
+ * <p> only the settings whose key changed are applied, so the values set in code, such as by a
+ * {@link org.springframework.boot.web.server.WebServerFactoryCustomizer}, are kept until acm changes them; a key removed
+ * from the config, or not above 0, restores the value the connector started with </p>
+ * <p> accept-count is the backlog of the server socket, it is only read when the socket is bound: the new value is kept
+ * by the connector and takes effect when the connector binds again </p>
+ * <p> the configured and the live value of each setting are published by {@link AcmTomcatMetrics} </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 20:30
+ */
+public class AcmTomcatConnectorTuner implements AcmConfigRefreshListener, ApplicationListener<WebServerInitializedEvent> {
+
+    private static final Log logger = LogFactory.getLog(AcmTomcatConnectorTuner.class);
+
+    static final String TOMCAT_PREFIX = "server.tomcat";
+
+    private static final String CANONICAL_TOMCAT_PREFIX = AcmConfigurationPropertiesRebinder.canonical(TOMCAT_PREFIX+".");
+
+    /**
+     * the connector settings tuned from acm
+     */
+    public enum Setting {
+        MAX_THREADS("max-threads"),
+        MIN_SPARE_THREADS("min-spare-threads"),
+        MAX_CONNECTIONS("max-connections"),
+        ACCEPT_COUNT("accept-count");
+
+        private final String key;
+
+        Setting(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return return the key under server.tomcat
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @param key a changed key
+         * @return return the setting of the key, null if it is not a tuned setting
+         */
+        static Setting of(String key) {
+            String canonical = AcmConfigurationPropertiesRebinder.canonical(key);
+            if(canonical.startsWith(CANONICAL_TOMCAT_PREFIX)){
+                for(Setting setting:values()){
+                    if(canonical.equals(CANONICAL_TOMCAT_PREFIX+AcmConfigurationPropertiesRebinder.canonical(setting.key))){
+                        return setting;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ConfigurableEnvironment environment;
+
+    private volatile TomcatWebServer webServer;
+
+    /**
+     * the value last applied for each setting
+     */
+    private final Map<Setting, Integer> configured = new EnumMap<>(Setting.class);
+
+    /**
+     * the value each connector started with, restored when the key is removed
+     */
+    private final Map<AbstractProtocol<?>, Map<Setting, Integer>> initial = new IdentityHashMap<>();
+
+    private final Map<Setting, Long> applyCounts = new EnumMap<>(Setting.class);
+
+    private long failureCount;
+
+    /**
+     * accept-count of the bound server socket
+     */
+    private int boundAcceptCount = -1;
+
+    public AcmTomcatConnectorTuner(ConfigurableEnvironment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void onApplicationEvent(WebServerInitializedEvent event) {
+        // the management server on its own port is left alone
+        if(event.getWebServer() instanceof TomcatWebServer && null==event.getApplicationContext().getServerNamespace()){
+            this.webServer = (TomcatWebServer) event.getWebServer();
+            synchronized (this){
+                for(Connector connector:webServer.getTomcat().getService().findConnectors()){
+                    if(connector.getProtocolHandler() instanceof AbstractProtocol){
+                        AbstractProtocol<?> protocol = (AbstractProtocol<?>) connector.getProtocolHandler();
+                        Map<Setting, Integer> values = new EnumMap<>(Setting.class);
+                        for(Setting setting:Setting.values()){
+                            values.put(setting, get(protocol, setting));
+                        }
+                        initial.put(protocol, values);
+                    }
+                }
+            }
+            AbstractProtocol<?> protocol = getProtocol();
+            if(null!=protocol){
+                synchronized (this){
+                    configured.put(Setting.MAX_THREADS, protocol.getMaxThreads());
+                    configured.put(Setting.MIN_SPARE_THREADS, protocol.getMinSpareThreads());
+                    configured.put(Setting.MAX_CONNECTIONS, protocol.getMaxConnections());
+                    configured.put(Setting.ACCEPT_COUNT, protocol.getAcceptCount());
+                    boundAcceptCount = protocol.getAcceptCount();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onRefresh(AcmConfigChangeEvent event) {
+        Set<Setting> settings = EnumSet.noneOf(Setting.class);
+        for(String key:event.getChangedKeys()){
+            Setting setting = Setting.of(key);
+            if(null!=setting){
+                settings.add(setting);
+            }
+        }
+        if(!settings.isEmpty()){
+            tune(settings);
+        }
+    }
+
+    /**
+     * apply the current server.tomcat.* of every setting to every connector of the web server
+     */
+    public void tune() {
+        tune(EnumSet.allOf(Setting.class));
+    }
+
+    /**
+     * apply the current value of the settings to every connector of the web server, the others are left as they are
+     * @param settings the settings to apply
+     */
+    public synchronized void tune(Set<Setting> settings) {
+        TomcatWebServer webServer = this.webServer;
+        if(null==webServer){
+            return;
+        }
+        Binder binder = Binder.get(environment);
+        Map<Setting, Integer> values = new EnumMap<>(Setting.class);
+        for(Setting setting:settings){
+            BindResult<Integer> value = binder.bind(TOMCAT_PREFIX+"."+setting.getKey(), Integer.class);
+            // the same as spring boot: a value not above 0 leaves the connector as it started
+            values.put(setting, value.isBound() && value.get()>0 ? value.get() : null);
+        }
+        for(Connector connector:webServer.getTomcat().getService().findConnectors()){
+            ProtocolHandler handler = connector.getProtocolHandler();
+            if(!(handler instanceof AbstractProtocol)){
+                continue;
+            }
+            try{
+                tune((AbstractProtocol<?>) handler, values);
+            }catch (RuntimeException e){
+                failureCount++;
+                logger.error("tune tomcat connector "+connector+" Exception: "+e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @param values the value of each setting to apply, null to restore the value the connector started with
+     */
+    private void tune(AbstractProtocol<?> protocol, Map<Setting, Integer> values) {
+        Map<Setting, Integer> started = initial.getOrDefault(protocol, Collections.emptyMap());
+        Map<Setting, Integer> targets = new EnumMap<>(Setting.class);
+        for(Map.Entry<Setting, Integer> entry:values.entrySet()){
+            Integer value = null!=entry.getValue() ? entry.getValue() : started.get(entry.getKey());
+            if(null!=value){
+                targets.put(entry.getKey(), value);
+            }
+        }
+        if(targets.containsKey(Setting.MAX_THREADS) || targets.containsKey(Setting.MIN_SPARE_THREADS)){
+            int maxThreads = targets.getOrDefault(Setting.MAX_THREADS, protocol.getMaxThreads());
+            int minSpareThreads = Math.min(targets.getOrDefault(Setting.MIN_SPARE_THREADS, protocol.getMinSpareThreads()), maxThreads);
+            // the executor refuses a core size above the max size, so the order depends on the direction
+            if(maxThreads>=protocol.getMinSpareThreads()){
+                set(protocol, Setting.MAX_THREADS, maxThreads);
+                set(protocol, Setting.MIN_SPARE_THREADS, minSpareThreads);
+            }else {
+                set(protocol, Setting.MIN_SPARE_THREADS, minSpareThreads);
+                set(protocol, Setting.MAX_THREADS, maxThreads);
+            }
+        }
+        if(targets.containsKey(Setting.MAX_CONNECTIONS)){
+            set(protocol, Setting.MAX_CONNECTIONS, targets.get(Setting.MAX_CONNECTIONS));
+        }
+        if(targets.containsKey(Setting.ACCEPT_COUNT)){
+            int acceptCount = targets.get(Setting.ACCEPT_COUNT);
+            if(set(protocol, Setting.ACCEPT_COUNT, acceptCount) && acceptCount!=boundAcceptCount){
+                logger.info("tomcat accept-count "+acceptCount+" takes effect when the connector binds again, the bound backlog is "+boundAcceptCount);
+            }
+        }
+    }
+
+    /**
+     * @return return false if the setting already had the value
+     */
+    private boolean set(AbstractProtocol<?> protocol, Setting setting, int value) {
+        int previous = get(protocol, setting);
+        if(previous==value){
+            return false;
+        }
+        switch (setting){
+            case MAX_THREADS:
+                protocol.setMaxThreads(value);
+                break;
+            case MIN_SPARE_THREADS:
+                protocol.setMinSpareThreads(value);
+                break;
+            case MAX_CONNECTIONS:
+                protocol.setMaxConnections(value);
+                break;
+            default:
+                protocol.setAcceptCount(value);
+        }
+        configured.put(setting, value);
+        applyCounts.merge(setting, 1L, Long::sum);
+        logger.info("tomcat "+setting.getKey()+" changed from "+previous+" to "+value+", live value "+getEffective(setting));
+        return true;
+    }
+
+    private static int get(AbstractProtocol<?> protocol, Setting setting) {
+        switch (setting){
+            case MAX_THREADS:
+                return protocol.getMaxThreads();
+            case MIN_SPARE_THREADS:
+                return protocol.getMinSpareThreads();
+            case MAX_CONNECTIONS:
+                return protocol.getMaxConnections();
+            default:
+                return protocol.getAcceptCount();
+        }
+    }
+
+    private AbstractProtocol<?> getProtocol() {
+        TomcatWebServer webServer = this.webServer;
+        if(null==webServer){
+            return null;
+        }
+        ProtocolHandler handler = webServer.getTomcat().getConnector().getProtocolHandler();
+        return handler instanceof AbstractProtocol ? (AbstractProtocol<?>) handler : null;
+    }
+
+    /**
+     * @return return true once the tomcat web server started
+     */
+    public boolean isStarted() {
+        return null!=webServer;
+    }
+
+    /**
+     * @param setting setting
+     * @return return the value last applied to the connector, -1 before the web server started
+     */
+    public synchronized int getConfigured(Setting setting) {
+        Integer value = configured.get(setting);
+        return null==value ? -1 : value;
+    }
+
+    /**
+     * the value in use by the connector: the size of the request executor for the threads, the backlog of the bound
+     * socket for the accept-count
+     * @param setting setting
+     * @return return the live value, -1 before the web server started
+     */
+    public int getEffective(Setting setting) {
+        AbstractProtocol<?> protocol = getProtocol();
+        if(null==protocol){
+            return -1;
+        }
+        Executor executor = protocol.getExecutor();
+        switch (setting){
+            case MAX_THREADS:
+                return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getMaximumPoolSize() : protocol.getMaxThreads();
+            case MIN_SPARE_THREADS:
+                return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getCorePoolSize() : protocol.getMinSpareThreads();
+            case MAX_CONNECTIONS:
+                return protocol.getMaxConnections();
+            default:
+                synchronized (this){
+                    return boundAcceptCount;
+                }
+        }
+    }
+
+    /**
+     * @param setting setting
+     * @return return how many times acm changed the setting
+     */
+    public synchronized long getApplyCount(Setting setting) {
+        return applyCounts.getOrDefault(setting, 0L);
+    }
+
+    /**
+     * @return return how many times a connector could not be tuned
+     */
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+}
@@ -0,0 +1,43 @@
+package top.vchar.alibaba.acm;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * <p> publish the tomcat connector settings tuned from acm to micrometer: the value applied, the value live in the
+ * connector and the number of applies, the busy threads are already published by the tomcat metrics of spring boot </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 20:40
+ */
+public class AcmTomcatMetrics implements MeterBinder {
+
+    private final AcmTomcatConnectorTuner tuner;
+
+    public AcmTomcatMetrics(AcmTomcatConnectorTuner tuner) {
+        this.tuner = tuner;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for(AcmTomcatConnectorTuner.Setting setting:AcmTomcatConnectorTuner.Setting.values()){
+            Tags tags = Tags.of("setting", setting.getKey());
+            Gauge.builder("acm.tomcat.configured", tuner, t -> unknownAsNaN(t, t.getConfigured(setting)))
+                    .tags(tags).description("value of the setting last applied to the connector").register(registry);
+            Gauge.builder("acm.tomcat.effective", tuner, t -> unknownAsNaN(t, t.getEffective(setting)))
+                    .tags(tags).description("value of the setting in use by the connector").register(registry);
+            FunctionCounter.builder("acm.tomcat.apply", tuner, t -> t.getApplyCount(setting))
+                    .tags(tags).description("number of changes of the setting applied from acm").register(registry);
+        }
+        FunctionCounter.builder("acm.tomcat.apply.failures", tuner, AcmTomcatConnectorTuner::getFailureCount)
+                .description("number of connectors that could not be tuned").register(registry);
+    }
+
+    /**
+     * a value not known before the web server started is reported as NaN, -1 is a valid max-connections
+     */
+    private static double unknownAsNaN(AcmTomcatConnectorTuner tuner, int value) {
+        return tuner.isStarted() ? value : Double.NaN;
+    }
+}
@@ -0,0 +1,182 @@
+package top.vchar.alibaba.acm;
+
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.events.*;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.util.*;
+
+/**
+ * <p> flatten a yml content from the snakeyaml event stream straight into a map, without building the object tree </p>
+ * <p> the keys and values are the same as {@link org.springframework.beans.factory.config.YamlPropertiesFactoryBean},
+ * the documents that use aliases, merge keys, duplicate keys, complex keys or collection tags are not handled
+ * and must be parsed by {@link org.springframework.beans.factory.config.YamlPropertiesFactoryBean} instead </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 14:05
+ */
+class AcmYamlFlattener {
+
+    private static final Resolver RESOLVER = new Resolver();
+
+    private AcmYamlFlattener(){
+    }
+
+    /**
+     * flatten a yml content
+     * @param content yml content
+     * @param target receive the flattened config
+     * @return return false if the content is not supported, the target then holds a partial result
+     */
+    static boolean flatten(String content, Map<String, Object> target) {
+        try{
+            new Flattener(target).flatten(new ParserImpl(new StreamReader(content)));
+            return true;
+        }catch (RuntimeException e){
+            return false;
+        }
+    }
+
+    private static class Flattener {
+
+        private final Map<String, Object> target;
+
+        private final ScalarConstructor constructor = new ScalarConstructor();
+
+        private final Deque<Frame> frames = new ArrayDeque<>();
+
+        Flattener(Map<String, Object> target) {
+            this.target = target;
+        }
+
+        void flatten(ParserImpl parser) {
+            Event event;
+            while (!((event = parser.getEvent()) instanceof StreamEndEvent)){
+                if(event instanceof DocumentStartEvent || event instanceof DocumentEndEvent || event instanceof StreamStartEvent){
+                    continue;
+                }
+                if(event instanceof MappingEndEvent || event instanceof SequenceEndEvent){
+                    Frame frame = frames.pop();
+                    if(frame.sequence && frame.index==0){
+                        target.put(frame.path, "");
+                    }
+                    continue;
+                }
+                Frame parent = frames.peek();
+                if(null!=parent && !parent.sequence && null==parent.key){
+                    parent.key = toKey(parent, event);
+                    continue;
+                }
+                String key;
+                if(null==parent){
+                    // a document that is not a map is stored as 'document'
+                    key = event instanceof MappingStartEvent ? null : "document";
+                }else if(parent.sequence){
+                    key = parent.path+"["+(parent.index++)+"]";
+                }else {
+                    key = parent.key;
+                    parent.key = null;
+                }
+                onValue(key, event, null==parent);
+            }
+        }
+
+        private void onValue(String key, Event event, boolean root) {
+            if(event instanceof ScalarEvent){
+                Object value = toValue((ScalarEvent) event);
+                if(null!=value || !root){
+                    target.put(key, null==value ? "" : value);
+                }
+            }else if(event instanceof MappingStartEvent){
+                checkTag(((MappingStartEvent) event).getTag(), Tag.MAP);
+                frames.push(new Frame(key, false));
+            }else if(event instanceof SequenceStartEvent){
+                checkTag(((SequenceStartEvent) event).getTag(), Tag.SEQ);
+                frames.push(new Frame(key, true));
+            }else {
+                throw new UnsupportedOperationException("unsupported yaml event "+event);
+            }
+        }
+
+        private String toKey(Frame frame, Event event) {
+            if(!(event instanceof ScalarEvent)){
+                throw new UnsupportedOperationException("unsupported yaml key "+event);
+            }
+            ScalarEvent scalar = (ScalarEvent) event;
+            Tag tag = resolveTag(scalar);
+            String key;
+            if(Tag.STR.equals(tag)){
+                key = scalar.getValue();
+            }else if(Tag.MERGE.equals(tag)){
+                throw new UnsupportedOperationException("unsupported yaml merge key");
+            }else {
+                Object value = constructor.construct(new ScalarNode(tag, scalar.getValue(), null, null, scalar.getScalarStyle()));
+                key = value instanceof CharSequence ? value.toString() : "["+value.toString()+"]";
+            }
+            if(!frame.keys.add(key)){
+                throw new UnsupportedOperationException("duplicate yaml key "+key);
+            }
+            if(null==frame.path || frame.path.isEmpty()){
+                return key;
+            }
+            return key.startsWith("[") ? frame.path+key : frame.path+"."+key;
+        }
+
+        private Object toValue(ScalarEvent scalar) {
+            Tag tag = resolveTag(scalar);
+            if(Tag.STR.equals(tag)){
+                return scalar.getValue();
+            }
+            return constructor.construct(new ScalarNode(tag, scalar.getValue(), null, null, scalar.getScalarStyle()));
+        }
+
+        private Tag resolveTag(ScalarEvent scalar) {
+            String tag = scalar.getTag();
+            if(null==tag || "!".equals(tag)){
+                return RESOLVER.resolve(NodeId.scalar, scalar.getValue(), scalar.getImplicit().canOmitTagInPlainScalar());
+            }
+            return new Tag(tag);
+        }
+
+        private void checkTag(String tag, Tag expected) {
+            if(null!=tag && !"!".equals(tag) && !expected.getValue().equals(tag)){
+                throw new UnsupportedOperationException("unsupported yaml tag "+tag);
+            }
+        }
+    }
+
+    private static class Frame {
+
+        private final String path;
+
+        private final boolean sequence;
+
+        private final Set<String> keys;
+
+        private String key;
+
+        private int index;
+
+        Frame(String path, boolean sequence) {
+            this.path = path;
+            this.sequence = sequence;
+            this.keys = sequence ? Collections.emptySet() : new HashSet<>();
+        }
+    }
+
+    /**
+     * construct the typed value of a scalar the same way as the snakeyaml object tree
+     */
+    private static class ScalarConstructor extends SafeConstructor {
+
+        Object construct(ScalarNode node) {
+            return getConstructor(node).construct(node);
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package top.vchar.alibaba.acm;
 
 import com.alibaba.edas.acm.exception.ConfigException;
+import com.alibaba.edas.acm.listener.ConfigChangeListener;
 
 import java.util.Properties;
 
 /**
  * <p> get acm config </p>
+ * <p> a data-id may belong to another namespace than the one of {@link #init(Properties)}, see {@link AcmNamespacedDataId} </p>
  *
  * @author vchar fred
  * @version 1.0
@@ -13,6 +15,12 @@ import java.util.Properties;
  */
 public interface DiamondProxy {
 
+    /**
+     * init the acm client
+     * @param properties endpoint, namespace and credentials of acm
+     */
+    void init(Properties properties);
+
     /**
      * get config
      * @param dataId dataId
@@ -32,4 +40,20 @@ public interface DiamondProxy {
      */
     Properties getProperties(String dataId, String group, long timeoutMs);
 
+    /**
+     * listen to the changes of a config
+     * @param dataId dataId
+     * @param group group
+     * @param listener receive the new content of the config
+     */
+    void addListener(String dataId, String group, ConfigChangeListener listener);
+
+    /**
+     * stop listening to the changes of a config
+     * @param dataId dataId
+     * @param group group
+     * @param listener a listener added with {@link #addListener(String, String, ConfigChangeListener)}
+     */
+    void removeListener(String dataId, String group, ConfigChangeListener listener);
+
 }
@@ -0,0 +1,90 @@
+package top.vchar.alibaba.acm;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * <p> create the {@link DiamondProxy} the config is read with </p>
+ * <p> built-in names: acm ({@link DiamondProxyImpl}), file ({@link FileDiamondProxy}) and latency ({@link LatencyInjectingDiamondProxy}),
+ * any other name selects a {@link DiamondProxy} registered with {@link ServiceLoader} by its class name or simple name,
+ * or is the class name of a {@link DiamondProxy} with a public no-arg constructor </p>
+ * <p> a registered implementation is never used unless selected by name, so a jar on the classpath can not replace acm </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 17:05
+ */
+public final class DiamondProxyFactory {
+
+    private static final Log logger = LogFactory.getLog(DiamondProxyFactory.class);
+
+    private DiamondProxyFactory(){
+    }
+
+    /**
+     * @param name built-in name, name of a registered implementation or class name, {@link DiamondProxyImpl} when empty
+     * @return return a diamond proxy, not initialized yet
+     */
+    public static DiamondProxy create(String name) {
+        if(StringUtils.isEmpty(name)){
+            return new DiamondProxyImpl();
+        }
+        switch (name.trim()){
+            case "acm":
+                return new DiamondProxyImpl();
+            case "file":
+                return new FileDiamondProxy();
+            case "latency":
+                return new LatencyInjectingDiamondProxy();
+            default:
+                DiamondProxy registered = loadRegistered(name.trim());
+                if(null!=registered){
+                    return registered;
+                }
+                try{
+                    Class<?> type = ClassUtils.forName(name.trim(), ClassUtils.getDefaultClassLoader());
+                    if(!DiamondProxy.class.isAssignableFrom(type)){
+                        throw new IllegalArgumentException(name+" is not a "+DiamondProxy.class.getName());
+                    }
+                    return (DiamondProxy) BeanUtils.instantiateClass(type);
+                }catch (ClassNotFoundException e){
+                    throw new IllegalArgumentException("unknown diamond proxy "+name, e);
+                }
+        }
+    }
+
+    /**
+     * @param name class name or simple name of the implementation
+     * @return return the implementation registered with {@link ServiceLoader} under the name, null if there is none
+     */
+    private static DiamondProxy loadRegistered(String name) {
+        List<DiamondProxy> matches = new ArrayList<>();
+        Iterator<DiamondProxy> proxies = ServiceLoader.load(DiamondProxy.class, ClassUtils.getDefaultClassLoader()).iterator();
+        while(true){
+            try{
+                if(!proxies.hasNext()){
+                    break;
+                }
+                DiamondProxy proxy = proxies.next();
+                if(name.equals(proxy.getClass().getName()) || name.equals(proxy.getClass().getSimpleName())){
+                    matches.add(proxy);
+                }
+            }catch (ServiceConfigurationError e){
+                logger.warn("load registered diamond proxy Exception: "+e.getMessage());
+            }
+        }
+        if(matches.size()>1){
+            List<String> names = new ArrayList<>();
+            for(DiamondProxy proxy:matches){
+                names.add(proxy.getClass().getName());
+            }
+            logger.warn("diamond proxies "+String.join(",", names)+" are registered as "+name+", use "+names.get(0));
+        }
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+}
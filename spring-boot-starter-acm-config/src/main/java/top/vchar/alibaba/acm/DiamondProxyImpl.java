@@ -2,16 +2,22 @@ package top.vchar.alibaba.acm;
 
 import com.alibaba.edas.acm.ConfigService;
 import com.alibaba.edas.acm.exception.ConfigException;
-import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.util.StringUtils;
+import com.alibaba.edas.acm.listener.ConfigChangeListener;
+import com.taobao.diamond.client.impl.DiamondEnv;
+import com.taobao.diamond.client.impl.DiamondEnvRepo;
+import com.taobao.diamond.exception.DiamondException;
 
-import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Properties;
 
 /**
  * <p> get acm config </p>
+ * <p> a data-id of another namespace, see {@link AcmNamespacedDataId}, is read and listened to with the tenant of the
+ * call instead of the tenant of the process: every namespace shares the same client, its server list, its http agent and
+ * the long polling that checks all the listened data-ids; the endpoint and the credentials stay the ones of the process </p>
+ * <p> the acm sdk only reads another tenant through the deprecated methods of {@link DiamondEnv}, {@link ConfigService}
+ * does the same for the tenant of the process; a cipher- data-id of another namespace is rejected, see
+ * {@link AcmNamespacedDataId#checkReadable(String)} </p>
  *
  * @author vchar fred
  * @version 1.0
@@ -19,6 +25,15 @@ import java.util.Properties;
  */
 public class DiamondProxyImpl implements DiamondProxy{
 
+    /**
+     * init the acm client
+     * @param properties endpoint, namespace and credentials of acm
+     */
+    @Override
+    public void init(Properties properties) {
+        ConfigService.init(properties);
+    }
+
     /**
      * get config
      * @param dataId dataId
@@ -26,10 +41,20 @@ public class DiamondProxyImpl implements DiamondProxy{
      * @param timeoutMs time out ms
      * @return return config info
      * @throws ConfigException config exception
+     * @throws IllegalArgumentException the data-id is a cipher- data-id of another namespace
      */
     @Override
+    @SuppressWarnings("deprecation")
     public String getConfig(String dataId, String group, long timeoutMs) throws ConfigException {
-        return ConfigService.getConfig(dataId, group, timeoutMs);
+        String namespace = AcmNamespacedDataId.namespaceOf(AcmNamespacedDataId.checkReadable(dataId));
+        if(null==namespace){
+            return ConfigService.getConfig(dataId, group, timeoutMs);
+        }
+        try{
+            return DiamondEnvRepo.getDefaultEnv().getConfig(namespace, AcmNamespacedDataId.dataIdOf(dataId), group, timeoutMs);
+        }catch (DiamondException e){
+            throw new ConfigException(e.getErrCode(), e.getErrMsg(), e);
+        }
     }
 
     /**
@@ -43,19 +68,55 @@ public class DiamondProxyImpl implements DiamondProxy{
     public Properties getProperties(String dataId, String group, long timeoutMs){
         try {
             String data = getConfig(dataId, group,timeoutMs);
-            if (!StringUtils.isEmpty(data)) {
-                if (dataId.endsWith(".yaml") || dataId.endsWith(".yml")) {
-                    YamlPropertiesFactoryBean yamlFactory = new YamlPropertiesFactoryBean();
-                    yamlFactory.setResources(new ByteArrayResource(data.getBytes(StandardCharsets.UTF_8)));
-                    return yamlFactory.getObject();
-                }
-                Properties properties = new Properties();
-                properties.load(new StringReader(data));
-                return properties;
-            }
+            return AcmConfigParser.toProperties(dataId, data);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return null;
     }
+
+    /**
+     * listen to the changes of a config
+     * @param dataId dataId
+     * @param group group
+     * @param listener receive the new content of the config
+     * @throws IllegalArgumentException the data-id is a cipher- data-id of another namespace
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public void addListener(String dataId, String group, ConfigChangeListener listener) {
+        String namespace = AcmNamespacedDataId.namespaceOf(AcmNamespacedDataId.checkReadable(dataId));
+        if(null==namespace){
+            ConfigService.addListener(dataId, group, listener);
+            return;
+        }
+        try{
+            DiamondEnvRepo.getDefaultEnv().addListeners(namespace, AcmNamespacedDataId.dataIdOf(dataId), group, Collections.singletonList(listener));
+        }catch (DiamondException e){
+            throw new IllegalArgumentException(dataId+" add acm listener Exception: "+e.getErrMsg(), e);
+        }
+    }
+
+    /**
+     * stop listening to the changes of a config
+     * @param dataId dataId
+     * @param group group
+     * @param listener a listener added with {@link #addListener(String, String, ConfigChangeListener)}
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public void removeListener(String dataId, String group, ConfigChangeListener listener) {
+        // ConfigService has no removeListener, the listeners are kept by the default env it adds them to
+        DiamondEnv env = DiamondEnvRepo.getDefaultEnv();
+        String namespace = AcmNamespacedDataId.namespaceOf(dataId);
+        if(null==namespace){
+            env.removeTenantListener(dataId, group, listener);
+            return;
+        }
+        try{
+            env.removeListener(namespace, AcmNamespacedDataId.dataIdOf(dataId), group, listener);
+        }catch (DiamondException e){
+            throw new IllegalArgumentException(dataId+" remove acm listener Exception: "+e.getErrMsg(), e);
+        }
+    }
 }
@@ -0,0 +1,184 @@
+package top.vchar.alibaba.acm;
+
+import com.alibaba.edas.acm.exception.ConfigException;
+import com.alibaba.edas.acm.listener.ConfigChangeListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * <p> read the config from a local directory instead of acm, the content of a data-id is the file {dir}/{group}/{dataId} </p>
+ * <p> the listeners are notified when a file is created, modified or deleted, so the refresh can be tested without acm </p>
+ * <p> settings: proxy.dir, default ./acm-config </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 17:15
+ */
+public class FileDiamondProxy implements DiamondProxy {
+
+    private static final Log logger = LogFactory.getLog(FileDiamondProxy.class);
+
+    private Path dir = Paths.get("acm-config");
+
+    /**
+     * listeners of each file
+     */
+    private final Map<Path, List<ConfigChangeListener>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * content last sent to the listeners of each file, a file is often reported modified more than once per write
+     */
+    private final Map<Path, String> contents = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+
+    private final Set<Path> watchedDirs = new HashSet<>();
+
+    @Override
+    public void init(Properties properties) {
+        String dir = properties.getProperty("proxy.dir");
+        if(null!=dir && dir.trim().length()>0){
+            this.dir = Paths.get(dir.trim());
+        }
+        logger.info("read acm config from "+this.dir.toAbsolutePath());
+    }
+
+    @Override
+    public String getConfig(String dataId, String group, long timeoutMs) throws ConfigException {
+        try{
+            return read(path(dataId, group));
+        }catch (IOException e){
+            throw new ConfigException(500, "read "+path(dataId, group)+" Exception: "+e.getMessage());
+        }
+    }
+
+    @Override
+    public Properties getProperties(String dataId, String group, long timeoutMs) {
+        try {
+            return AcmConfigParser.toProperties(dataId, getConfig(dataId, group, timeoutMs));
+        } catch (Exception e) {
+            logger.error(dataId+" read config Exception: "+e.getMessage(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public void addListener(String dataId, String group, ConfigChangeListener listener) {
+        Path path = path(dataId, group);
+        try{
+            watch(path.getParent());
+            contents.computeIfAbsent(path, p -> {
+                try{
+                    String content = read(p);
+                    return null==content ? "" : content;
+                }catch (IOException e){
+                    return "";
+                }
+            });
+            listeners.computeIfAbsent(path, p -> new CopyOnWriteArrayList<>()).add(listener);
+        }catch (IOException e){
+            throw new IllegalStateException("watch "+path.getParent()+" Exception: "+e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void removeListener(String dataId, String group, ConfigChangeListener listener) {
+        List<ConfigChangeListener> fileListeners = listeners.get(path(dataId, group));
+        if(null!=fileListeners){
+            fileListeners.remove(listener);
+        }
+    }
+
+    private Path path(String dataId, String group) {
+        return dir.resolve(group).resolve(dataId).toAbsolutePath().normalize();
+    }
+
+    private static String read(Path path) throws IOException {
+        if(!Files.isRegularFile(path)){
+            return null;
+        }
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private synchronized void watch(Path groupDir) throws IOException {
+        if(watchedDirs.contains(groupDir)){
+            return;
+        }
+        Files.createDirectories(groupDir);
+        if(null==watchService){
+            watchService = groupDir.getFileSystem().newWatchService();
+            Thread thread = new Thread(this::poll, "acm-file-watch");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        groupDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirs.add(groupDir);
+    }
+
+    private void poll() {
+        while (!Thread.currentThread().isInterrupted()){
+            WatchKey key;
+            try{
+                key = watchService.take();
+            }catch (InterruptedException | ClosedWatchServiceException e){
+                return;
+            }
+            Path groupDir = (Path) key.watchable();
+            Set<Path> changed = new LinkedHashSet<>();
+            for(WatchEvent<?> event:key.pollEvents()){
+                if(event.kind()==StandardWatchEventKinds.OVERFLOW){
+                    // events were lost, check every file of the directory
+                    for(Path path:listeners.keySet()){
+                        if(path.getParent().equals(groupDir)){
+                            changed.add(path);
+                        }
+                    }
+                }else {
+                    changed.add(groupDir.resolve((Path) event.context()));
+                }
+            }
+            key.reset();
+            for(Path path:changed){
+                notifyListeners(path);
+            }
+        }
+    }
+
+    private void notifyListeners(Path path) {
+        List<ConfigChangeListener> fileListeners = listeners.get(path);
+        if(null==fileListeners){
+            return;
+        }
+        String content;
+        try{
+            content = read(path);
+        }catch (IOException e){
+            logger.warn("read "+path+" Exception: "+e.getMessage());
+            return;
+        }
+        String current = null==content ? "" : content;
+        if(current.equals(contents.put(path, current))){
+            return;
+        }
+        for(ConfigChangeListener listener:fileListeners){
+            Executor executor = listener.getExecutor();
+            try{
+                if(null==executor){
+                    listener.receiveConfigInfo(content);
+                }else {
+                    executor.execute(() -> listener.receiveConfigInfo(content));
+                }
+            }catch (Exception e){
+                logger.error(path+" notify listener Exception: "+e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package top.vchar.alibaba.acm;
+
+import com.alibaba.edas.acm.exception.ConfigException;
+import com.alibaba.edas.acm.listener.ConfigChangeListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p> wrap another {@link DiamondProxy} and slow it down like a remote acm: every read and every push is delayed
+ * by latency plus a random jitter, and a read fails at the given rate </p>
+ * <p> a read slower than its timeout waits for the timeout and fails, as the acm client does </p>
+ * <p> settings: proxy.delegate (default file), proxy.latency and proxy.jitter in ms, proxy.failure-rate from 0 to 1 </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 17:30
+ */
+public class LatencyInjectingDiamondProxy implements DiamondProxy {
+
+    private static final Log logger = LogFactory.getLog(LatencyInjectingDiamondProxy.class);
+
+    private DiamondProxy delegate;
+
+    private long latency;
+
+    private long jitter;
+
+    private double failureRate;
+
+    /**
+     * the delaying listener added to the delegate for each listener
+     */
+    private final Map<ConfigChangeListener, ConfigChangeListener> listeners = new ConcurrentHashMap<>();
+
+    public LatencyInjectingDiamondProxy() {
+    }
+
+    /**
+     * @param delegate the proxy to slow down, already initialized
+     * @param latency fixed delay in ms
+     * @param jitter max random delay added to the latency in ms
+     * @param failureRate rate of the reads that fail, from 0 to 1
+     */
+    public LatencyInjectingDiamondProxy(DiamondProxy delegate, long latency, long jitter, double failureRate) {
+        this.delegate = delegate;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public void init(Properties properties) {
+        this.latency = Long.parseLong(properties.getProperty("proxy.latency", "0"));
+        this.jitter = Long.parseLong(properties.getProperty("proxy.jitter", "0"));
+        this.failureRate = Double.parseDouble(properties.getProperty("proxy.failure-rate", "0"));
+        if(null==delegate){
+            String name = properties.getProperty("proxy.delegate", "file");
+            if("latency".equals(name)){
+                throw new IllegalArgumentException("the latency proxy can not delegate to itself");
+            }
+            delegate = DiamondProxyFactory.create(name);
+            delegate.init(properties);
+        }
+        logger.info("inject latency "+latency+"ms, jitter "+jitter+"ms, failure rate "+failureRate+" into "+delegate.getClass().getName());
+    }
+
+    @Override
+    public String getConfig(String dataId, String group, long timeoutMs) throws ConfigException {
+        long delay = nextDelay();
+        if(timeoutMs>0 && delay>timeoutMs){
+            sleep(timeoutMs);
+            throw new ConfigException(408, dataId+" injected timeout after "+timeoutMs+"ms");
+        }
+        sleep(delay);
+        if(failureRate>0 && ThreadLocalRandom.current().nextDouble()<failureRate){
+            throw new ConfigException(500, dataId+" injected failure");
+        }
+        return delegate.getConfig(dataId, group, timeoutMs);
+    }
+
+    @Override
+    public Properties getProperties(String dataId, String group, long timeoutMs) {
+        try {
+            return AcmConfigParser.toProperties(dataId, getConfig(dataId, group, timeoutMs));
+        } catch (Exception e) {
+            logger.error(dataId+" get config Exception: "+e.getMessage(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public void addListener(String dataId, String group, ConfigChangeListener listener) {
+        ConfigChangeListener delayed = new ConfigChangeListener() {
+            @Override
+            public Executor getExecutor() {
+                return listener.getExecutor();
+            }
+
+            @Override
+            public void receiveConfigInfo(String configInfo) {
+                try{
+                    sleep(nextDelay());
+                }catch (ConfigException e){
+                    return;
+                }
+                listener.receiveConfigInfo(configInfo);
+            }
+        };
+        listeners.put(listener, delayed);
+        delegate.addListener(dataId, group, delayed);
+    }
+
+    @Override
+    public void removeListener(String dataId, String group, ConfigChangeListener listener) {
+        ConfigChangeListener delayed = listeners.remove(listener);
+        if(null!=delayed){
+            delegate.removeListener(dataId, group, delayed);
+        }
+    }
+
+    private long nextDelay() {
+        return latency+(jitter>0 ? ThreadLocalRandom.current().nextLong(jitter+1) : 0);
+    }
+
+    private static void sleep(long millis) throws ConfigException {
+        if(millis<=0){
+            return;
+        }
+        try{
+            Thread.sleep(millis);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new ConfigException(500, "interrupted");
+        }
+    }
+}
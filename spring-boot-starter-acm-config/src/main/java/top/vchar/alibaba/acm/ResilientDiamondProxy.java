@@ -0,0 +1,335 @@
+package top.vchar.alibaba.acm;
+
+import com.alibaba.edas.acm.exception.ConfigException;
+import com.alibaba.edas.acm.listener.ConfigChangeListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.*;
+
+/**
+ * <p> wrap another {@link DiamondProxy} so that a slow or failing acm does not hold the startup for the full time out
+ * of every data-id </p>
+ * <p> the time out of a read is a multiple of the p99 of the latencies observed so far, never above the time out asked for;
+ * when the first request is slow a second one is sent and the first answer wins, a request failing fast is sent again once;
+ * after several reads failed in a row acm is considered down and reads fail at once, so the local snapshot is used, until
+ * a trial read after the open time succeeds </p>
+ * <p> settings: proxy.timeout-multiplier (default 3), proxy.min-timeout in ms (default 300), proxy.hedge (default true),
+ * proxy.hedge-delay in ms (default the p95 latency, a third of the time out before any latency is known),
+ * proxy.breaker-failures (default 5), proxy.breaker-open in ms (default 30000) </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 20:50
+ */
+public class ResilientDiamondProxy implements DiamondProxy {
+
+    private static final Log logger = LogFactory.getLog(ResilientDiamondProxy.class);
+
+    /**
+     * number of latencies kept
+     */
+    private static final int WINDOW = 128;
+
+    /**
+     * latencies needed before the time out and the hedge delay follow them
+     */
+    private static final int MIN_SAMPLES = 5;
+
+    private static final ExecutorService executor;
+
+    static {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("acm-fetch-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    private final DiamondProxy delegate;
+
+    private double timeoutMultiplier = 3;
+
+    private long minTimeout = 300;
+
+    private boolean hedge = true;
+
+    private long hedgeDelay = 0;
+
+    private int breakerFailures = 5;
+
+    private long breakerOpen = 30000;
+
+    private final long[] latencies = new long[WINDOW];
+
+    private int latencyNext;
+
+    private int latencySize;
+
+    private int consecutiveFailures;
+
+    /**
+     * time the breaker closes for a trial read, 0 when closed
+     */
+    private long openUntil;
+
+    private boolean trial;
+
+    private long hedgeCount;
+
+    private long rejectCount;
+
+    /**
+     * @param delegate the proxy the config is fetched with, initialized by {@link #init(Properties)}
+     */
+    public ResilientDiamondProxy(DiamondProxy delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void init(Properties properties) {
+        delegate.init(properties);
+        this.timeoutMultiplier = Double.parseDouble(properties.getProperty("proxy.timeout-multiplier", "3"));
+        this.minTimeout = Long.parseLong(properties.getProperty("proxy.min-timeout", "300"));
+        this.hedge = !"false".equals(properties.getProperty("proxy.hedge"));
+        this.hedgeDelay = Long.parseLong(properties.getProperty("proxy.hedge-delay", "0"));
+        this.breakerFailures = Integer.parseInt(properties.getProperty("proxy.breaker-failures", "5"));
+        this.breakerOpen = Long.parseLong(properties.getProperty("proxy.breaker-open", "30000"));
+    }
+
+    /**
+     * get config with an adaptive time out, a hedged request and a circuit breaker
+     * @param dataId dataId
+     * @param group group
+     * @param timeoutMs the longest time out
+     * @return return config info
+     * @throws ConfigException config exception, error code 503 when acm is considered down
+     */
+    @Override
+    public String getConfig(String dataId, String group, long timeoutMs) throws ConfigException {
+        if(!allow()){
+            throw new ConfigException(503, dataId+" acm is unavailable, circuit breaker open");
+        }
+        if(timeoutMs<=0){
+            try{
+                String content = delegate.getConfig(dataId, group, timeoutMs);
+                succeeded();
+                return content;
+            }catch (ConfigException | RuntimeException e){
+                failed();
+                throw e;
+            }
+        }
+        long timeout = timeout(timeoutMs);
+        long hedgeAfter = hedge ? hedgeDelay(timeout) : timeout;
+        Fetch fetch = new Fetch(dataId, group, timeout);
+        fetch.start();
+        try{
+            String content;
+            if(hedgeAfter<timeout){
+                try{
+                    content = fetch.result.get(hedgeAfter, TimeUnit.MILLISECONDS);
+                }catch (TimeoutException e){
+                    if(fetch.start()){
+                        synchronized (this){
+                            hedgeCount++;
+                        }
+                        logger.info(dataId+" acm config not received after "+hedgeAfter+"ms, send a hedged request");
+                    }
+                    content = fetch.result.get(Math.max(1, fetch.remaining()), TimeUnit.MILLISECONDS);
+                }
+            }else {
+                content = fetch.result.get(timeout, TimeUnit.MILLISECONDS);
+            }
+            succeeded();
+            return content;
+        }catch (TimeoutException e){
+            failed();
+            throw new ConfigException(408, dataId+" get acm config time out after "+timeout+"ms");
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new ConfigException(500, dataId+" interrupted while getting acm config", e);
+        }catch (ExecutionException e){
+            failed();
+            Throwable cause = e.getCause();
+            if(cause instanceof ConfigException){
+                throw (ConfigException) cause;
+            }
+            throw new ConfigException(500, dataId+" get acm config Exception: "+cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * @param timeoutMs the longest time out
+     * @return return a multiple of the p99 latency, between the min time out and the longest time out
+     */
+    private synchronized long timeout(long timeoutMs) {
+        if(latencySize<MIN_SAMPLES){
+            return timeoutMs;
+        }
+        long adaptive = (long) Math.ceil(percentile(0.99)*timeoutMultiplier);
+        return Math.min(timeoutMs, Math.max(minTimeout, adaptive));
+    }
+
+    private synchronized long hedgeDelay(long timeout) {
+        if(hedgeDelay>0){
+            return hedgeDelay;
+        }
+        if(latencySize<MIN_SAMPLES){
+            return timeout/3;
+        }
+        return Math.max(1, percentile(0.95));
+    }
+
+    private long percentile(double percentile) {
+        long[] sorted = Arrays.copyOf(latencies, latencySize);
+        Arrays.sort(sorted);
+        return sorted[Math.min(latencySize-1, (int) Math.ceil(percentile*latencySize)-1)];
+    }
+
+    private synchronized void record(long millis) {
+        latencies[latencyNext] = millis;
+        latencyNext = (latencyNext+1)%WINDOW;
+        if(latencySize<WINDOW){
+            latencySize++;
+        }
+    }
+
+    /**
+     * @return return false while the breaker is open, once open time passed a single trial read is allowed
+     */
+    private synchronized boolean allow() {
+        if(0==openUntil){
+            return true;
+        }
+        if(System.currentTimeMillis()<openUntil || trial){
+            rejectCount++;
+            return false;
+        }
+        trial = true;
+        return true;
+    }
+
+    private synchronized void succeeded() {
+        if(0!=openUntil){
+            logger.info("acm is available again, circuit breaker closed");
+        }
+        consecutiveFailures = 0;
+        openUntil = 0;
+        trial = false;
+    }
+
+    private synchronized void failed() {
+        consecutiveFailures++;
+        if(consecutiveFailures>=breakerFailures && breakerFailures>0){
+            if(0==openUntil || trial){
+                logger.warn(consecutiveFailures+" acm reads failed in a row, circuit breaker open for "+breakerOpen+"ms");
+            }
+            openUntil = System.currentTimeMillis()+breakerOpen;
+        }
+        trial = false;
+    }
+
+    /**
+     * @return return the number of hedged requests sent
+     */
+    public synchronized long getHedgeCount() {
+        return hedgeCount;
+    }
+
+    /**
+     * @return return the number of reads failed at once by the open breaker
+     */
+    public synchronized long getRejectCount() {
+        return rejectCount;
+    }
+
+    /**
+     * @return return true while reads fail at once
+     */
+    public synchronized boolean isOpen() {
+        return 0!=openUntil;
+    }
+
+    @Override
+    public Properties getProperties(String dataId, String group, long timeoutMs) {
+        try{
+            return AcmConfigParser.toProperties(dataId, getConfig(dataId, group, timeoutMs));
+        }catch (Exception e){
+            logger.error(dataId+" get config Exception: "+e.getMessage(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public void addListener(String dataId, String group, ConfigChangeListener listener) {
+        delegate.addListener(dataId, group, listener);
+    }
+
+    @Override
+    public void removeListener(String dataId, String group, ConfigChangeListener listener) {
+        delegate.removeListener(dataId, group, listener);
+    }
+
+    /**
+     * the requests of one read, at most two: the first answer completes the read, it fails when every request failed
+     */
+    private class Fetch {
+
+        private final String dataId;
+
+        private final String group;
+
+        private final long deadline;
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        private int attempts;
+
+        private int running;
+
+        Fetch(String dataId, String group, long timeout) {
+            this.dataId = dataId;
+            this.group = group;
+            this.deadline = System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(timeout);
+        }
+
+        long remaining() {
+            return TimeUnit.NANOSECONDS.toMillis(deadline-System.nanoTime());
+        }
+
+        /**
+         * @return return false if the read is done, was already sent twice or has no time left
+         */
+        synchronized boolean start() {
+            long remaining = remaining();
+            if(result.isDone() || attempts>=2 || remaining<=0){
+                return false;
+            }
+            attempts++;
+            running++;
+            executor.execute(() -> attempt(remaining));
+            return true;
+        }
+
+        private void attempt(long timeout) {
+            long start = System.nanoTime();
+            try{
+                String content = delegate.getConfig(dataId, group, timeout);
+                record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start));
+                result.complete(content);
+            }catch (Exception e){
+                boolean failed;
+                synchronized (this){
+                    running--;
+                    // a request failing before the other one was sent is sent again at once
+                    failed = 0==running && !start();
+                }
+                if(failed){
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
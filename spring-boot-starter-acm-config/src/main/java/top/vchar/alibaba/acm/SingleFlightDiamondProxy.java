@@ -0,0 +1,329 @@
+package top.vchar.alibaba.acm;
+
+import com.alibaba.edas.acm.exception.ConfigException;
+import com.alibaba.edas.acm.listener.ConfigChangeListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p> wrap another {@link DiamondProxy} with one config cache shared by the whole process, keyed by the proxy settings
+ * (namespace, endpoint, proxy.*), the group and the data-id </p>
+ * <p> concurrent reads of the same data-id wait for one fetch instead of each asking acm, a failed fetch is not cached.
+ * A data-id nobody listens to is cached for a short time only, enough for the early fetch to hand it to the startup,
+ * and nothing is registered to acm for it; the first listener added through any instance registers one listener per
+ * data-id, which keeps the cached content up to date with the pushes of acm and passes them on. The listener of acm and
+ * the cache are dropped with the last listener removed </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 19:40
+ */
+public class SingleFlightDiamondProxy implements DiamondProxy {
+
+    private static final Log logger = LogFactory.getLog(SingleFlightDiamondProxy.class);
+
+    /**
+     * ms the content of a data-id nobody listens to is cached after it was fetched
+     */
+    static final long UNLISTENED_TTL = 30000L;
+
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final DiamondProxy delegate;
+
+    /**
+     * the proxy settings, the same data-id read with other settings is cached apart
+     */
+    private String scope;
+
+    /**
+     * @param delegate the proxy the config is fetched with, initialized by {@link #init(Properties)}
+     */
+    public SingleFlightDiamondProxy(DiamondProxy delegate) {
+        this.delegate = delegate;
+        this.scope = delegate.getClass().getName();
+    }
+
+    @Override
+    public void init(Properties properties) {
+        delegate.init(properties);
+        StringBuilder scope = new StringBuilder(delegate.getClass().getName());
+        for(String name:new TreeSet<>(properties.stringPropertyNames())){
+            if("namespace".equals(name) || "endpoint".equals(name) || name.startsWith("proxy.")){
+                scope.append('\n').append(name).append('=').append(properties.getProperty(name));
+            }
+        }
+        this.scope = scope.toString();
+    }
+
+    /**
+     * get config, from the cache when already fetched
+     * @param dataId dataId
+     * @param group group
+     * @param timeoutMs time out ms, also the time waited for a fetch already running
+     * @return return config info
+     * @throws ConfigException config exception
+     */
+    @Override
+    public String getConfig(String dataId, String group, long timeoutMs) throws ConfigException {
+        evictExpired();
+        Entry entry;
+        CompletableFuture<Object> future;
+        boolean fetch = false;
+        while(true){
+            entry = entry(dataId, group);
+            synchronized (entry){
+                if(entry.removed){
+                    continue;
+                }
+                if(null!=entry.content && entry.isExpired()){
+                    entry.content = null;
+                }
+                if(null==entry.content){
+                    entry.content = new CompletableFuture<>();
+                    entry.expiresAt = Long.MAX_VALUE;
+                    fetch = true;
+                }
+                future = entry.content;
+                break;
+            }
+        }
+        if(fetch){
+            return fetch(entry, future, dataId, group, timeoutMs);
+        }
+        try{
+            Object content = timeoutMs>0 ? future.get(timeoutMs, TimeUnit.MILLISECONDS) : future.get();
+            return null==content ? null : content.toString();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new ConfigException(500, dataId+" interrupted while waiting for the config", e);
+        }catch (TimeoutException e){
+            throw new ConfigException(408, dataId+" time out after "+timeoutMs+"ms waiting for the config");
+        }catch (ExecutionException e){
+            Throwable cause = e.getCause();
+            if(cause instanceof ConfigException){
+                throw new ConfigException(((ConfigException) cause).getErrCode(), ((ConfigException) cause).getErrMsg(), cause);
+            }
+            throw new ConfigException(500, dataId+" get config Exception: "+cause.getMessage(), cause);
+        }
+    }
+
+    private String fetch(Entry entry, CompletableFuture<Object> future, String dataId, String group, long timeoutMs) throws ConfigException {
+        String content;
+        try{
+            content = delegate.getConfig(dataId, group, timeoutMs);
+        }catch (ConfigException | RuntimeException e){
+            synchronized (entry){
+                if(entry.content==future){
+                    entry.content = null;
+                }
+                removeIfUnused(entry);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (entry){
+            if(entry.content==future && null==entry.upstream){
+                // not kept up to date by acm, only cached for the reads following shortly
+                entry.expiresAt = System.currentTimeMillis()+UNLISTENED_TTL;
+            }
+        }
+        future.complete(cached(dataId, content));
+        return content;
+    }
+
+    /**
+     * @return return the value the content is cached with, a large content is kept off the heap
+     */
+    private static Object cached(String dataId, String content) {
+        return null==content ? null : AcmMappedContent.store(dataId, content, null);
+    }
+
+    /**
+     * drop the data-ids nobody listens to whose content expired, on every use of the cache
+     */
+    private static void evictExpired() {
+        for(Entry entry:entries.values()){
+            synchronized (entry){
+                if(null!=entry.content && entry.isExpired()){
+                    entry.content = null;
+                    removeIfUnused(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * drop the entry from the cache when it has neither listener nor content; must hold the lock of the entry
+     */
+    private static void removeIfUnused(Entry entry) {
+        if(!entry.removed && null==entry.upstream && entry.listeners.isEmpty() && null==entry.content){
+            entry.removed = true;
+            entries.remove(entry.key, entry);
+        }
+    }
+
+    /**
+     * add the listener keeping the cache of the data-id up to date, once; must hold the lock of the entry
+     */
+    private void subscribe(Entry entry, String dataId, String group) {
+        if(null!=entry.upstream){
+            return;
+        }
+        ConfigChangeListener upstream = new ConfigChangeListener() {
+            @Override
+            public void receiveConfigInfo(String configInfo) {
+                synchronized (entry){
+                    if(entry.upstream!=this){
+                        return;
+                    }
+                    entry.content = CompletableFuture.completedFuture(cached(dataId, configInfo));
+                }
+                entry.push(configInfo);
+            }
+        };
+        delegate.addListener(dataId, group, upstream);
+        entry.upstream = upstream;
+        entry.owner = delegate;
+        entry.expiresAt = Long.MAX_VALUE;
+    }
+
+    @Override
+    public Properties getProperties(String dataId, String group, long timeoutMs) {
+        try{
+            return AcmConfigParser.toProperties(dataId, getConfig(dataId, group, timeoutMs));
+        }catch (Exception e){
+            logger.error(dataId+" get config Exception: "+e.getMessage(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public void addListener(String dataId, String group, ConfigChangeListener listener) {
+        evictExpired();
+        while(true){
+            Entry entry = entry(dataId, group);
+            synchronized (entry){
+                if(entry.removed){
+                    continue;
+                }
+                try{
+                    subscribe(entry, dataId, group);
+                }catch (RuntimeException e){
+                    removeIfUnused(entry);
+                    throw e;
+                }
+                entry.listeners.add(listener);
+                return;
+            }
+        }
+    }
+
+    /**
+     * stop listening, the listener of acm is removed and the cache dropped with the last listener of the data-id
+     * @param dataId dataId
+     * @param group group
+     * @param listener a listener added with {@link #addListener(String, String, ConfigChangeListener)}
+     */
+    @Override
+    public void removeListener(String dataId, String group, ConfigChangeListener listener) {
+        evictExpired();
+        Entry entry = entries.get(key(dataId, group));
+        if(null==entry){
+            return;
+        }
+        synchronized (entry){
+            if(!entry.listeners.remove(listener) || !entry.listeners.isEmpty() || null==entry.upstream){
+                return;
+            }
+            try{
+                entry.owner.removeListener(dataId, group, entry.upstream);
+            }catch (RuntimeException e){
+                logger.warn(dataId+" remove acm config listener Exception: "+e.getMessage());
+            }
+            entry.upstream = null;
+            entry.owner = null;
+            entry.content = null;
+            removeIfUnused(entry);
+        }
+    }
+
+    /**
+     * @return return the number of data-ids cached or listened to in the process
+     */
+    static int size() {
+        return entries.size();
+    }
+
+    private String key(String dataId, String group) {
+        return scope+'\n'+group+'\n'+dataId;
+    }
+
+    private Entry entry(String dataId, String group) {
+        return entries.computeIfAbsent(key(dataId, group), key -> new Entry(key, dataId));
+    }
+
+    /**
+     * the cache of one data-id
+     */
+    private static class Entry {
+
+        private final String key;
+
+        private final String dataId;
+
+        /**
+         * the content, or the fetch in progress; null when not fetched
+         */
+        private CompletableFuture<Object> content;
+
+        /**
+         * when the content expires, only before a listener is added
+         */
+        private long expiresAt = Long.MAX_VALUE;
+
+        /**
+         * true once dropped from the cache, the entry is not used any more
+         */
+        private boolean removed;
+
+        /**
+         * the listener added to acm and the proxy it was added with
+         */
+        private ConfigChangeListener upstream;
+
+        private DiamondProxy owner;
+
+        private final List<ConfigChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+        Entry(String key, String dataId) {
+            this.key = key;
+            this.dataId = dataId;
+        }
+
+        /**
+         * must hold the lock of the entry
+         */
+        boolean isExpired() {
+            return null==upstream && System.currentTimeMillis()>=expiresAt;
+        }
+
+        void push(String content) {
+            for(ConfigChangeListener listener:listeners){
+                Executor executor = listener.getExecutor();
+                try{
+                    if(null==executor){
+                        listener.receiveConfigInfo(content);
+                    }else {
+                        executor.execute(() -> listener.receiveConfigInfo(content));
+                    }
+                }catch (Exception e){
+                    logger.error(dataId+" notify listener Exception: "+e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
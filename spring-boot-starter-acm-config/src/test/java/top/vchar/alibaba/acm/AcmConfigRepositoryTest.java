@@ -0,0 +1,159 @@
+package top.vchar.alibaba.acm;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * <p> the refreshes of the acm config: concurrent refreshes of a data-id and the debounced pushes </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 09:30
+ */
+public class AcmConfigRepositoryTest {
+
+    private static final String DATA_ID = "a.yml";
+
+    private StandardEnvironment environment;
+
+    private AcmConfigRepository repository;
+
+    private ParkingStats stats;
+
+    private final List<AcmConfigChangeEvent> events = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        environment = new StandardEnvironment();
+        stats = new ParkingStats();
+        LinkedHashMap<String, Map<String, Object>> sources = new LinkedHashMap<>();
+        sources.put(DATA_ID, AcmPropertySource.compact(AcmConfigParser.toSource(DATA_ID, "demo:\n  value: 1\n")));
+        sources.put("b.yml", Collections.emptyMap());
+        repository = new AcmConfigRepository(environment, null, "DEFAULT_GROUP", new HashMap<>(), sources, null, stats, null);
+        repository.install(null);
+        repository.addListener(events::add);
+    }
+
+    @Test
+    public void laterContentWinsWhenEarlierParseCompletesLast() throws Exception {
+        Future<?> earlier = refreshParked("demo:\n  value: 2\n");
+        repository.refresh(DATA_ID, "demo:\n  value: 3\n");
+        assertEquals("3", environment.getProperty("demo.value"));
+
+        stats.release();
+        earlier.get(5, TimeUnit.SECONDS);
+        assertEquals("3", environment.getProperty("demo.value"));
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void revertWhileEarlierParseRunsIsApplied() throws Exception {
+        Future<?> earlier = refreshParked("demo:\n  value: 2\n");
+        // the content already applied, pushed again after the one being parsed
+        repository.refresh(DATA_ID, "demo:\n  value: 1\n");
+
+        stats.release();
+        earlier.get(5, TimeUnit.SECONDS);
+        assertEquals("1", environment.getProperty("demo.value"));
+        assertTrue(events.isEmpty());
+
+        // the superseded content is still applied when pushed again
+        repository.refresh(DATA_ID, "demo:\n  value: 2\n");
+        assertEquals("2", environment.getProperty("demo.value"));
+    }
+
+    @Test
+    public void debouncedPushesAreAppliedOnceWithTheLatestContent() throws Exception {
+        CountDownLatch applied = new CountDownLatch(1);
+        repository.addListener(event -> applied.countDown());
+        AcmRefreshDebouncer debouncer = new AcmRefreshDebouncer(repository, 50);
+        try{
+            debouncer.submit(DATA_ID, "demo:\n  value: 2\n");
+            debouncer.submit("b.yml", "other: x\n");
+            debouncer.submit(DATA_ID, "demo:\n  value: 3\n");
+            assertTrue(applied.await(5, TimeUnit.SECONDS));
+        }finally {
+            debouncer.close();
+        }
+        assertEquals(1, events.size());
+        assertEquals(new HashSet<>(Arrays.asList(DATA_ID, "b.yml")), new HashSet<>(events.get(0).getDataIds()));
+        assertEquals(new HashSet<>(Arrays.asList("demo.value", "other")), events.get(0).getChangedKeys());
+        assertEquals("3", environment.getProperty("demo.value"));
+        assertEquals("x", environment.getProperty("other"));
+    }
+
+    @Test
+    public void malformedContentDoesNotDropTheOtherDataIds() {
+        Map<String, String> contents = new LinkedHashMap<>();
+        contents.put(DATA_ID, "demo: [2\n");
+        contents.put("b.yml", "other: x\n");
+        repository.refresh(contents);
+        assertEquals("1", environment.getProperty("demo.value"));
+        assertEquals("x", environment.getProperty("other"));
+        assertEquals(1, events.size());
+
+        // the malformed content pushed again is parsed again, then fixed
+        repository.refresh(DATA_ID, "demo: [2\n");
+        assertEquals(1, events.size());
+        repository.refresh(DATA_ID, "demo:\n  value: 2\n");
+        assertEquals("2", environment.getProperty("demo.value"));
+    }
+
+    /**
+     * refresh the data-id on another thread, held after its content is parsed until {@link ParkingStats#release()}
+     */
+    private Future<?> refreshParked(String content) throws InterruptedException {
+        stats.parking = true;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(() -> repository.refresh(DATA_ID, content));
+        executor.shutdown();
+        assertTrue(stats.parked.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    /**
+     * holds the first refresh of the data-id parsed once parking, between its parse and its apply
+     */
+    private static class ParkingStats extends AcmConfigStats {
+
+        private volatile boolean parking;
+
+        private final Map<String, DataIdStats> dataIds = new ConcurrentHashMap<>();
+
+        private final CountDownLatch parked = new CountDownLatch(1);
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public DataIdStats get(String dataId) {
+            return dataIds.computeIfAbsent(dataId, id -> new DataIdStats(id) {
+                @Override
+                void parsed(long nanos, Map<String, Object> source) {
+                    super.parsed(nanos, source);
+                    if(parking && DATA_ID.equals(id) && parked.getCount()>0){
+                        parked.countDown();
+                        await();
+                    }
+                }
+            });
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        private void await() {
+            try{
+                released.await(5, TimeUnit.SECONDS);
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package top.vchar.alibaba.acm;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * <p> the order of the callbacks of the config changes dispatched on the listener pool </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/18 10:40
+ */
+public class AcmListenerDispatcherTest {
+
+    private final AcmListenerDispatcher dispatcher = new AcmListenerDispatcher(4, 16);
+
+    @After
+    public void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Test
+    public void changeOfADataIdWaitsForTheBatchHoldingIt() throws Exception {
+        CountDownLatch batchStarted = new CountDownLatch(1);
+        CountDownLatch releaseBatch = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> calls = new CopyOnWriteArrayList<>();
+        Consumer<AcmConfigChangeEvent> callback = event -> {
+            String key = String.join(",", event.getDataIds());
+            if("a.yml,b.yml".equals(key)){
+                batchStarted.countDown();
+                await(releaseBatch);
+            }
+            calls.add(key);
+            done.countDown();
+        };
+        dispatcher.dispatch(event("a.yml", "b.yml"), callback);
+        assertTrue(batchStarted.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch(event("a.yml"), callback);
+        dispatcher.dispatch(event("c.yml"), callback);
+
+        // another data-id is not held by the batch
+        assertTrue(waitFor(() -> calls.contains("c.yml")));
+        assertFalse(calls.contains("a.yml"));
+
+        releaseBatch.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(calls.indexOf("a.yml,b.yml")<calls.indexOf("a.yml"));
+        assertTrue(waitFor(() -> dispatcher.getMailboxCount()==0));
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    public void fullMailboxMergesTheOldestChange() throws Exception {
+        AcmListenerDispatcher small = new AcmListenerDispatcher(1, 1);
+        try{
+            CountDownLatch release = new CountDownLatch(1);
+            List<AcmConfigChangeEvent> calls = new CopyOnWriteArrayList<>();
+            Consumer<AcmConfigChangeEvent> callback = event -> {
+                await(release);
+                calls.add(event);
+            };
+            small.dispatch(event("a.yml"), callback);
+            small.dispatch(new AcmConfigChangeEvent(this, Collections.singletonList("a.yml"), Collections.singleton("x"), Collections.emptySet(), Collections.emptySet()), callback);
+            small.dispatch(new AcmConfigChangeEvent(this, Arrays.asList("a.yml", "b.yml"), Collections.singleton("y"), Collections.emptySet(), Collections.emptySet()), callback);
+            release.countDown();
+
+            assertTrue(waitFor(() -> calls.size()==2));
+            assertEquals(1, small.getDroppedCount());
+            assertEquals(new HashSet<>(Arrays.asList("x", "y")), calls.get(1).getChangedKeys());
+            assertTrue(waitFor(() -> small.getMailboxCount()==0));
+        }finally {
+            small.destroy();
+        }
+    }
+
+    private AcmConfigChangeEvent event(String... dataIds) {
+        return new AcmConfigChangeEvent(this, Arrays.asList(dataIds), Collections.singleton("key"), Collections.emptySet(), Collections.emptySet());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try{
+            latch.await(5, TimeUnit.SECONDS);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean waitFor(Callable<Boolean> condition) throws Exception {
+        long deadline = System.nanoTime()+TimeUnit.SECONDS.toNanos(5);
+        while(!condition.call()){
+            if(System.nanoTime()>deadline){
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package top.vchar.alibaba.acm.benchmark;
+
+import org.springframework.boot.env.OriginTrackedMapPropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.*;
+
+/**
+ * <p> generate the data-ids and the application config used by the benchmarks </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 15:02
+ */
+final class BenchmarkData {
+
+    /**
+     * keys under the same parent, the yml files nest the keys by group
+     */
+    private static final int GROUP_SIZE = 20;
+
+    private BenchmarkData(){
+    }
+
+    /**
+     * @param format yml or properties
+     * @param dataIds number of data-ids
+     * @param keys number of keys spread over all the data-ids
+     * @return return the content of each data-id
+     */
+    static Map<String, String> dataIds(String format, int dataIds, int keys) {
+        Map<String, String> contents = new LinkedHashMap<>();
+        for(int i=0; i<dataIds; i++){
+            int from = keys*i/dataIds;
+            int to = keys*(i+1)/dataIds;
+            contents.put("bench-"+i+"."+format, "yml".equals(format) ? yml(i, from, to) : properties(i, from, to));
+        }
+        return contents;
+    }
+
+    /**
+     * @param dataIds number of data-ids
+     * @param keys number of keys spread over all the data-ids
+     * @return return every key of the generated data-ids
+     */
+    static String[] keys(int dataIds, int keys) {
+        String[] names = new String[keys];
+        for(int i=0; i<dataIds; i++){
+            for(int k=keys*i/dataIds; k<keys*(i+1)/dataIds; k++){
+                names[k] = key(i, k);
+            }
+        }
+        return names;
+    }
+
+    static String content(String format, int keys) {
+        return dataIds(format, 1, keys).values().iterator().next();
+    }
+
+    private static String key(int dataId, int key) {
+        return "bench.d"+dataId+".g"+(key/GROUP_SIZE)+".key-"+key;
+    }
+
+    private static String value(int key) {
+        return "value-"+key+"-jdbc:mysql://127.0.0.1:3306/bench?useUnicode=true";
+    }
+
+    private static String properties(int dataId, int from, int to) {
+        StringBuilder content = new StringBuilder();
+        for(int k=from; k<to; k++){
+            content.append(key(dataId, k)).append('=').append(value(k)).append('\n');
+        }
+        return content.toString();
+    }
+
+    private static String yml(int dataId, int from, int to) {
+        StringBuilder content = new StringBuilder("bench:\n  d").append(dataId).append(":\n");
+        int group = -1;
+        for(int k=from; k<to; k++){
+            if(k/GROUP_SIZE!=group){
+                group = k/GROUP_SIZE;
+                content.append("    g").append(group).append(":\n");
+            }
+            content.append("      key-").append(k).append(": ").append(value(k)).append('\n');
+        }
+        return content.toString();
+    }
+
+    /**
+     * a new environment with the application config that loads the data-ids
+     * @param dataIds data-ids
+     * @return return environment
+     */
+    static ConfigurableEnvironment environment(Collection<String> dataIds) {
+        Map<String, Object> application = new HashMap<>();
+        application.put("alibaba.acm.endpoint", "acm.aliyun.com");
+        application.put("alibaba.acm.namespace", "benchmark");
+        application.put("alibaba.acm.data-id-list", String.join(",", dataIds));
+        application.put("alibaba.acm.snapshot-mode", "none");
+        ConfigurableEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new OriginTrackedMapPropertySource("applicationConfig: [classpath:/application.yml]", application));
+        return environment;
+    }
+}
@@ -0,0 +1,30 @@
+package top.vchar.alibaba.acm.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p> run the benchmarks with the jmh command line options </p>
+ * <p> the results are written as json to jmh-result.json unless -rf or -rff is given </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 15:40
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if(!commandLine.getResultFormat().hasValue()){
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if(!commandLine.getResult().hasValue()){
+            options.result("jmh-result.json");
+        }
+        new Runner(options.build()).run();
+    }
+}
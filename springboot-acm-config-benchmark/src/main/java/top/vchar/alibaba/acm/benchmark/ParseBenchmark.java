@@ -0,0 +1,77 @@
+package top.vchar.alibaba.acm.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import top.vchar.alibaba.acm.DiamondProxyImpl;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p> yml and properties parsing of {@link DiamondProxyImpl#getProperties} </p>
+ * <p> parse reads a new content each time, cachedParse reads the same content again </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 15:28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"100", "5000", "50000"})
+    private int keys;
+
+    @Param({"yml", "properties"})
+    private String format;
+
+    private String dataId;
+
+    private DiamondProxyImpl uniqueProxy;
+
+    private DiamondProxyImpl sameProxy;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String content = BenchmarkData.content(format, keys);
+        dataId = "bench."+format;
+        uniqueProxy = new ContentDiamondProxy(content, true);
+        sameProxy = new ContentDiamondProxy(content, false);
+    }
+
+    @Benchmark
+    public Properties parse() {
+        return uniqueProxy.getProperties(dataId, "DEFAULT_GROUP", 3000);
+    }
+
+    @Benchmark
+    public Properties cachedParse() {
+        return sameProxy.getProperties(dataId, "DEFAULT_GROUP", 3000);
+    }
+
+    /**
+     * the real {@link DiamondProxyImpl} with the remote read replaced by a fixed content
+     */
+    private static class ContentDiamondProxy extends DiamondProxyImpl {
+
+        private final String content;
+
+        private final boolean unique;
+
+        private final AtomicLong version = new AtomicLong();
+
+        ContentDiamondProxy(String content, boolean unique) {
+            this.content = content;
+            this.unique = unique;
+        }
+
+        @Override
+        public String getConfig(String dataId, String group, long timeoutMs) {
+            return unique ? content+"#"+version.incrementAndGet()+"\n" : content;
+        }
+    }
+}
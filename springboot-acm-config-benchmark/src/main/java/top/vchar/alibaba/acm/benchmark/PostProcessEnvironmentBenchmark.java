@@ -0,0 +1,51 @@
+package top.vchar.alibaba.acm.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.env.ConfigurableEnvironment;
+import top.vchar.alibaba.acm.ACMConfigEnvironmentPostProcessor;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> startup cost of {@link ACMConfigEnvironmentPostProcessor#postProcessEnvironment}: fetch, parse, merge and install </p>
+ * <p> the data-ids are served by a stub, every invocation gets a new content so nothing is served from the parse cache </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 15:20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostProcessEnvironmentBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int dataIds;
+
+    @Param({"100", "5000", "50000"})
+    private int keys;
+
+    @Param({"yml", "properties"})
+    private String format;
+
+    private Map<String, String> contents;
+
+    private StubDiamondProxy diamondProxy;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        contents = BenchmarkData.dataIds(format, dataIds, keys);
+        diamondProxy = new StubDiamondProxy(contents, true);
+    }
+
+    @Benchmark
+    public ConfigurableEnvironment postProcessEnvironment() {
+        ConfigurableEnvironment environment = BenchmarkData.environment(contents.keySet());
+        new ACMConfigEnvironmentPostProcessor(diamondProxy).postProcessEnvironment(environment, null);
+        return environment;
+    }
+}
@@ -0,0 +1,63 @@
+package top.vchar.alibaba.acm.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.env.ConfigurableEnvironment;
+import top.vchar.alibaba.acm.ACMConfigEnvironmentPostProcessor;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p> {@link org.springframework.core.env.Environment#getProperty(String)} after the acm config is installed </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 15:35
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyLookupBenchmark {
+
+    @Param({"10"})
+    private int dataIds;
+
+    @Param({"100", "5000", "50000"})
+    private int keys;
+
+    private ConfigurableEnvironment environment;
+
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, String> contents = BenchmarkData.dataIds("properties", dataIds, keys);
+        environment = BenchmarkData.environment(contents.keySet());
+        new ACMConfigEnvironmentPostProcessor(new StubDiamondProxy(contents, false)).postProcessEnvironment(environment, null);
+        names = BenchmarkData.keys(dataIds, keys);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next(int length) {
+            index = index+1<length ? index+1 : 0;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public String getProperty(Cursor cursor) {
+        return environment.getProperty(names[cursor.next(names.length)]);
+    }
+
+    @Benchmark
+    public String getMissingProperty() {
+        return environment.getProperty("bench.missing.key");
+    }
+}
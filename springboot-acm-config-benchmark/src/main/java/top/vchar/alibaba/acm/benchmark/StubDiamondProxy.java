@@ -0,0 +1,62 @@
+package top.vchar.alibaba.acm.benchmark;
+
+import com.alibaba.edas.acm.listener.ConfigChangeListener;
+import top.vchar.alibaba.acm.AcmConfigParser;
+import top.vchar.alibaba.acm.DiamondProxy;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p> serve the data-ids from memory instead of acm </p>
+ * <p> when unique is set every read returns a content that was never seen, so the parse cache is always missed </p>
+ *
+ * @author vchar fred
+ * @version 1.0
+ * @create_date 2026/10/17 15:10
+ */
+class StubDiamondProxy implements DiamondProxy {
+
+    private final Map<String, String> contents;
+
+    private final boolean unique;
+
+    private final AtomicLong version = new AtomicLong();
+
+    StubDiamondProxy(Map<String, String> contents, boolean unique) {
+        this.contents = contents;
+        this.unique = unique;
+    }
+
+    @Override
+    public void init(Properties properties) {
+    }
+
+    @Override
+    public String getConfig(String dataId, String group, long timeoutMs) {
+        String content = contents.get(dataId);
+        if(null==content || !unique){
+            return content;
+        }
+        return content+"#"+version.incrementAndGet()+"\n";
+    }
+
+    @Override
+    public Properties getProperties(String dataId, String group, long timeoutMs) {
+        try{
+            return AcmConfigParser.toProperties(dataId, getConfig(dataId, group, timeoutMs));
+        }catch (IOException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void addListener(String dataId, String group, ConfigChangeListener listener) {
+    }
+
+    @Override
+    public void removeListener(String dataId, String group, ConfigChangeListener listener) {
+    }
+}